@@ -0,0 +1,56 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/****************
+ * Parsing of the renderer output by RenderLogParser, over the Blender logs recorded in error_signatures.txt (the excerpts written above the
+ * signatures: status lines of Blender 2.7x to 3.x, errors and the other lines of the output). Run with "gradlew jmh", the score is the time to parse the whole recording.
+ */
+@State(Scope.Thread) @BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS) @Warmup(iterations = 3, time = 2) @Measurement(iterations = 5, time = 2) @Fork(1)
+public class RenderLogParserBenchmark {
+	private String[] lines;
+	private RenderLogParser parser;
+	
+	@Setup public void load() throws IOException {
+		List<String> recorded = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(RenderLogParserBenchmark.class.getResourceAsStream(ErrorSignatures.RESOURCE), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("# ")) {
+					recorded.add(line.substring("# ".length()));
+				}
+			}
+		}
+		this.lines = recorded.toArray(new String[0]);
+		this.parser = new RenderLogParser(); // reused for every line, as in Job::render
+	}
+	
+	@Benchmark public void parse(Blackhole blackhole) {
+		for (String line : this.lines) {
+			this.parser.parse(line);
+			blackhole.consume(this.parser.getProgress());
+			blackhole.consume(this.parser.getRemaining());
+			blackhole.consume(this.parser.getTileProgress());
+			blackhole.consume(this.parser.isPostProcessing());
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.model.ZipParameters;
+import net.lingala.zip4j.model.enums.AesKeyStrength;
+import net.lingala.zip4j.model.enums.EncryptionMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/****************
+ * Extraction of a scene archive by Utils::unzipFileIntoDirectory (the entries on a pool sized to the cpu count) against zip4j's sequential
+ * extractAll(). The archive is shaped like a project: a 120MB .blend and 400 textures of 100KB, plain or AES-256 like the scene archives sent by the
+ * server. Each run extracts into an empty directory. The gain of the pool depends on the number of cores of the machine.
+ */
+@State(Scope.Benchmark) @BenchmarkMode(Mode.SingleShotTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 2) @Measurement(iterations = 5) @Fork(1)
+public class UnzipBenchmark {
+	private static final char[] PASSWORD = "benchmark".toCharArray();
+	
+	@Param({ "false", "true" }) public boolean encrypted;
+	
+	private File directory;
+	private File archive;
+	private File output;
+	
+	@Setup(Level.Trial) public void createArchive() throws IOException {
+		this.directory = Files.createTempDirectory("sheepit_unzip_benchmark").toFile();
+		File content = new File(this.directory, "content");
+		File textures = new File(content, "textures");
+		textures.mkdirs();
+		
+		// half random bytes and half repeated ones, a .blend compresses a little
+		Random random = new Random(42);
+		byte[] block = new byte[1024 * 1024];
+		try (OutputStream blend = Files.newOutputStream(new File(content, "scene.blend").toPath())) {
+			for (int i = 0; i < 120; i++) {
+				random.nextBytes(block);
+				Arrays.fill(block, 0, block.length / 2, (byte) i);
+				blend.write(block);
+			}
+		}
+		byte[] texture = new byte[100 * 1024];
+		for (int i = 0; i < 400; i++) {
+			random.nextBytes(texture);
+			File file = new File(textures, "texture_" + i + ".png");
+			Files.write(file.toPath(), texture);
+		}
+		
+		ZipParameters parameters = new ZipParameters();
+		if (this.encrypted) {
+			parameters.setEncryptFiles(true);
+			parameters.setEncryptionMethod(EncryptionMethod.AES);
+			parameters.setAesKeyStrength(AesKeyStrength.KEY_STRENGTH_256);
+		}
+		this.archive = new File(this.directory, "scene.zip");
+		try (ZipFile zip = new ZipFile(this.archive, this.encrypted ? PASSWORD : null)) {
+			zip.addFile(new File(content, "scene.blend"), parameters);
+			zip.addFolder(textures, parameters);
+		}
+		Utils.delete(content);
+		this.output = new File(this.directory, "output");
+	}
+	
+	@Setup(Level.Invocation) public void clearOutput() {
+		Utils.delete(this.output);
+		this.output.mkdirs();
+	}
+	
+	@TearDown(Level.Trial) public void removeArchive() {
+		Utils.delete(this.directory);
+	}
+	
+	@Benchmark public int parallel() {
+		return Utils.unzipFileIntoDirectory(this.archive.getAbsolutePath(), this.output.getAbsolutePath(), this.encrypted ? PASSWORD : null,
+			Log.getInstance(null));
+	}
+	
+	@Benchmark public void sequential() throws IOException {
+		try (ZipFile zip = new ZipFile(this.archive, this.encrypted ? PASSWORD : null)) {
+			zip.extractAll(this.output.getAbsolutePath());
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.sheepit.client;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/****************
+ * Trims the render archive (the frames uploaded, the .blend and the scene directories modified by the renders, one directory per project) to its
+ * retention: at most archiveMaxFilesPerProject files per project, none older than archiveMaxAge, and at most archiveMaxSize bytes, the oldest files
+ * going first. The limits are off by default. The age of a file is its modification time, set to its arrival by Utils::moveToArchive when the age is
+ * limited (the time it was written otherwise). A low priority thread checks the archive once an hour and removes the files in small batches, waiting
+ * while a job is being downloaded or extracted so it does not compete with it for the disk.
+ */
+public class ArchiveCompactor {
+	private static final long INTERVAL = 3600 * 1000L; // ms between two compactions
+	private static final int BATCH_SIZE = 100; // files removed in a row
+	private static final long BATCH_PAUSE = 1000; // ms, between two batches
+	private static final long BUSY_PAUSE = 10000; // ms, while a job is being prepared
+	private static final long EMPTY_DIRECTORY_DELAY = 600 * 1000L; // ms, a directory just created is about to receive a file
+	private static final long DAY = 24 * 3600 * 1000L;
+	
+	private final Configuration configuration;
+	private final Log log;
+	private final BooleanSupplier busy; // true while a job is being downloaded or extracted
+	
+	public ArchiveCompactor(Configuration configuration, Log log, BooleanSupplier busy) {
+		this.configuration = configuration;
+		this.log = log;
+		this.busy = busy;
+	}
+	
+	public void start() {
+		if (this.configuration.getArchiveDir() == null
+			|| (this.configuration.getArchiveMaxSize() <= 0 && this.configuration.getArchiveMaxAge() <= 0 && this.configuration.getArchiveMaxFilesPerProject() <= 0)) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			while (true) {
+				try {
+					this.compact();
+					Thread.sleep(INTERVAL);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "Archive compactor");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+	
+	/**
+	 * Remove the files of the archive beyond its retention, then the empty directories
+	 */
+	public void compact() throws InterruptedException {
+		Path root = this.configuration.getArchiveDir().toPath();
+		List<ArchivedFile> files = new ArrayList<>();
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (attributes.isRegularFile()) {
+						files.add(new ArchivedFile(file, root.relativize(file).getName(0).toString(), attributes.size(), attributes.lastModifiedTime().toMillis()));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException e) {
+			this.log.debug("ArchiveCompactor::compact unable to list " + root + " (" + e + ")");
+			return;
+		}
+		
+		Set<ArchivedFile> expired = this.getExpired(files);
+		if (expired.isEmpty() == false) {
+			long bytes = expired.stream().mapToLong(file -> file.size).sum();
+			this.log.debug("ArchiveCompactor::compact removing " + expired.size() + " of the " + files.size() + " files of the render archive (" + bytes + " bytes)");
+			this.remove(new ArrayList<>(expired));
+		}
+		this.removeEmptyDirectories(root);
+	}
+	
+	/**
+	 * @return the files beyond the retention, the oldest first
+	 */
+	private Set<ArchivedFile> getExpired(List<ArchivedFile> files) {
+		files.sort(Comparator.comparingLong(file -> file.lastModified));
+		Set<ArchivedFile> expired = new LinkedHashSet<>();
+		
+		long maxAge = this.configuration.getArchiveMaxAge() * DAY;
+		if (maxAge > 0) {
+			long limit = System.currentTimeMillis() - maxAge;
+			for (ArchivedFile file : files) {
+				if (file.lastModified < limit) {
+					expired.add(file);
+				}
+			}
+		}
+		
+		int maxFiles = this.configuration.getArchiveMaxFilesPerProject();
+		if (maxFiles > 0) {
+			Map<String, List<ArchivedFile>> projects = new HashMap<>();
+			for (ArchivedFile file : files) {
+				projects.computeIfAbsent(file.project, key -> new ArrayList<>()).add(file);
+			}
+			for (List<ArchivedFile> project : projects.values()) {
+				expired.addAll(project.subList(0, Math.max(0, project.size() - maxFiles)));
+			}
+		}
+		
+		long maxSize = this.configuration.getArchiveMaxSize();
+		if (maxSize > 0) {
+			long size = files.stream().filter(file -> expired.contains(file) == false).mapToLong(file -> file.size).sum();
+			for (int i = 0; i < files.size() && size > maxSize; i++) {
+				if (expired.add(files.get(i))) {
+					size -= files.get(i).size;
+				}
+			}
+		}
+		return expired;
+	}
+	
+	private void remove(List<ArchivedFile> files) throws InterruptedException {
+		for (int start = 0; start < files.size(); start += BATCH_SIZE) {
+			while (this.busy.getAsBoolean()) {
+				Thread.sleep(BUSY_PAUSE);
+			}
+			for (ArchivedFile file : files.subList(start, Math.min(files.size(), start + BATCH_SIZE))) {
+				try {
+					Files.deleteIfExists(file.path);
+				}
+				catch (IOException e) {
+					this.log.debug("ArchiveCompactor::remove unable to remove " + file.path + " (" + e + ")");
+				}
+			}
+			Thread.sleep(BATCH_PAUSE);
+		}
+	}
+	
+	private void removeEmptyDirectories(Path root) {
+		long limit = System.currentTimeMillis() - EMPTY_DIRECTORY_DELAY;
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+					if (directory.equals(root)) {
+						return FileVisitResult.CONTINUE;
+					}
+					try {
+						if (Files.getLastModifiedTime(directory).toMillis() < limit) {
+							try (DirectoryStream<Path> content = Files.newDirectoryStream(directory)) {
+								if (content.iterator().hasNext() == false) {
+									Files.delete(directory);
+								}
+							}
+						}
+					}
+					catch (IOException ignored) {
+						// removed or filled meanwhile
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		catch (IOException e) {
+			this.log.debug("ArchiveCompactor::removeEmptyDirectories " + e);
+		}
+	}
+	
+	private static class ArchivedFile {
+		private final Path path;
+		private final String project; // directory of the archive the file is in
+		private final long size;
+		private final long lastModified;
+		
+		private ArchivedFile(Path path, String project, long size, long lastModified) {
+			this.path = path;
+			this.project = project;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package com.sheepit.client;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/****************
+ * Keeps the archives (renderers and scenes, in the storage, working and shared downloads directories) and their extracted trees under the quota of
+ * the cache (Configuration::cacheQuota), and frees the space an archive needs on the disk before its download starts. The archives removed first are
+ * the ones least worth keeping: the time it would take to download one again, times the number of jobs which used it, per byte it takes, lowered for
+ * each day it has not been used. The archives of the jobs rendering or being prepared are never removed, nor the archives of the shared downloads
+ * directory whose download lock (SharedDownloadLock) is held by a client, and an archive of the shared directory is only removed under its lock.
+ */
+public class CacheQuota {
+	public static final String FILENAME = "sheepit_cache_usage.txt";
+	
+	private static final long REQUEST_COST = 2000; // ms, to get an archive again besides its transfer
+	private static final long DEFAULT_SPEED = 1024 * 1024; // bytes/s, when no download has been measured yet
+	private static final long MIN_FREE_SPACE = 100 * 1024 * 1024; // bytes left on the disk once the archive is downloaded and extracted
+	private static final long DAY = 24 * 3600 * 1000L;
+	private static final String SEPARATOR = "\t";
+	
+	private final Configuration configuration;
+	private final Log log;
+	private Map<String, Usage> usages; // by md5, read from the storage directory on first use
+	
+	public CacheQuota(Configuration configuration, Log log) {
+		this.configuration = configuration;
+		this.log = log;
+		this.usages = null;
+	}
+	
+	/**
+	 * The archive is used by a job, downloaded or reused from the cache
+	 */
+	public synchronized void used(String md5) {
+		Usage usage = this.getUsages().computeIfAbsent(md5, key -> new Usage(0, 0));
+		usage.hits++;
+		usage.lastUse = new Date().getTime();
+		this.save();
+	}
+	
+	/**
+	 * Remove archives until the cache is under its quota and, when an archive is about to be downloaded, until it fits in the quota and on its disk
+	 * with room for its extraction. The quota is exceeded rather than failing a job when the archives left are all in use.
+	 *
+	 * @param destination path of the archive to download, null to only apply the quota
+	 * @param size bytes to download
+	 * @param inUse md5 of the archives which must be kept
+	 * @param speed of the downloads in bytes/s, 0 if unknown
+	 * @return false if the disk of the destination does not have enough space left
+	 */
+	public synchronized boolean reserve(File destination, long size, Set<String> inUse, long speed) {
+		Map<String, Entry> entries = this.list();
+		this.getUsages().keySet().retainAll(entries.keySet());
+		
+		long now = new Date().getTime();
+		List<Entry> candidates = entries.values().stream().filter(entry -> inUse.contains(entry.md5) == false && entry.locked == false)
+			.sorted(Comparator.comparingDouble(entry -> this.value(entry, speed, now))).collect(Collectors.toList());
+		int next = 0;
+		
+		long quota = this.configuration.getCacheQuota();
+		if (quota > 0) {
+			long total = entries.values().stream().mapToLong(entry -> entry.size).sum();
+			while (total + size > quota && next < candidates.size()) {
+				Entry entry = candidates.get(next++);
+				if (this.remove(entry, "the cache is over its quota")) {
+					total -= entry.size;
+				}
+			}
+			if (total + size > quota) {
+				this.log.debug("CacheQuota::reserve the archives left are in use, the cache stays over its quota (" + total + " bytes)");
+			}
+		}
+		
+		boolean enough = true;
+		File directory = destination != null ? destination.getParentFile() : null;
+		if (directory != null) {
+			long needed = 2 * size + MIN_FREE_SPACE; // the archive and its extraction, at least as big
+			FileStore store = getStore(directory);
+			List<Entry> onDisk = candidates.subList(next, candidates.size()).stream().filter(entry -> store != null && entry.isOn(store))
+				.collect(Collectors.toList());
+			// nothing is removed for a download which would not fit anyway
+			if (directory.getUsableSpace() + onDisk.stream().mapToLong(entry -> entry.size).sum() >= needed) {
+				for (int i = 0; i < onDisk.size() && directory.getUsableSpace() < needed; i++) {
+					this.remove(onDisk.get(i), "not enough space on the disk");
+				}
+			}
+			if (directory.getUsableSpace() < needed) {
+				this.log.error("CacheQuota::reserve not enough space on the disk for " + destination.getAbsolutePath() + " (" + needed + " bytes needed, "
+						+ directory.getUsableSpace() + " available)");
+				enough = false;
+			}
+		}
+		
+		this.save();
+		return enough;
+	}
+	
+	/**
+	 * @return the time saved by keeping the archive, per byte
+	 */
+	private double value(Entry entry, long speed, long now) {
+		Usage usage = this.getUsages().get(entry.md5);
+		long hits = usage != null ? Math.max(1, usage.hits) : 1;
+		long lastUse = usage != null ? usage.lastUse : entry.lastModified; // archives downloaded before the usages were recorded
+		double cost = REQUEST_COST + entry.size * 1000.0 / (speed > 0 ? speed : DEFAULT_SPEED);
+		double idleDays = Math.max(0, now - lastUse) / (double) DAY;
+		return hits * cost / Math.max(1, entry.size) / (1 + idleDays);
+	}
+	
+	/**
+	 * @return false if the archive has been kept, another client took the lock of its copy in the shared downloads directory
+	 */
+	private boolean remove(Entry entry, String reason) {
+		List<SharedDownloadLock> locks = new ArrayList<>();
+		try {
+			for (File file : entry.archives) {
+				if (this.isShared(file)) {
+					SharedDownloadLock lock = new SharedDownloadLock(file.getAbsolutePath(), this.log);
+					if (lock.tryLock() == false) {
+						this.log.debug("CacheQuota::remove archive " + entry.md5 + " is locked by another client, kept");
+						return false;
+					}
+					locks.add(lock);
+				}
+			}
+			
+			this.log.debug("CacheQuota::remove archive " + entry.md5 + " (" + entry.size + " bytes), " + reason);
+			ChecksumIndex index = this.configuration.getChecksumIndex();
+			for (File file : entry.archives) {
+				file.delete();
+				index.remove(file);
+			}
+			this.configuration.getRendererCache().remove(entry.md5);
+			this.configuration.getSceneCache().remove(entry.md5);
+			this.getUsages().remove(entry.md5);
+			return true;
+		}
+		catch (IOException e) {
+			this.log.debug("CacheQuota::remove unable to lock archive " + entry.md5 + " (" + e + "), kept");
+			return false;
+		}
+		finally {
+			for (SharedDownloadLock lock : locks) {
+				lock.release(true);
+			}
+		}
+	}
+	
+	private boolean isShared(File file) {
+		File shared = this.configuration.getSharedDownloadsDirectory();
+		return shared != null && shared.getAbsoluteFile().equals(file.getAbsoluteFile().getParentFile());
+	}
+	
+	/**
+	 * @return true if a client (this one included) holds the download lock of the archive of the shared downloads directory
+	 */
+	private boolean isLocked(File archive) {
+		if (new File(archive.getAbsolutePath() + SharedDownloadLock.LOCK_EXTENSION).exists() == false) {
+			return false;
+		}
+		SharedDownloadLock lock = new SharedDownloadLock(archive.getAbsolutePath(), this.log);
+		try {
+			if (lock.tryLock() == false) {
+				return true;
+			}
+			lock.release(false);
+			return false;
+		}
+		catch (IOException e) {
+			return true;
+		}
+	}
+	
+	/**
+	 * @return the archives of the cache with their extracted trees, by md5. An archive linked in several directories is counted once.
+	 */
+	private Map<String, Entry> list() {
+		List<File> directories = new ArrayList<>();
+		directories.add(this.configuration.getStorageDir());
+		directories.add(this.configuration.getSharedDownloadsDirectory());
+		File working = this.configuration.getWorkingDirectory();
+		directories.add(working);
+		File[] slots = working != null ? working.listFiles((dir, name) -> name.startsWith(RenderSlot.DIRECTORY_PREFIX)) : null;
+		if (slots != null) {
+			directories.addAll(List.of(slots));
+		}
+		
+		Map<String, Entry> entries = new HashMap<>();
+		Set<Object> counted = new HashSet<>();
+		for (File directory : directories) {
+			File[] files = directory != null ? directory.listFiles((dir, name) -> name.endsWith(".zip")) : null;
+			if (files == null) {
+				continue;
+			}
+			for (File file : files) {
+				if (file.isFile()) {
+					String md5 = file.getName().substring(0, file.getName().length() - ".zip".length());
+					Entry entry = entries.computeIfAbsent(md5, Entry::new);
+					entry.archives.add(file);
+					entry.size += sizeOf(file.toPath(), counted);
+					entry.lastModified = Math.max(entry.lastModified, file.lastModified());
+					entry.locked |= this.isShared(file) && this.isLocked(file);
+				}
+			}
+		}
+		
+		for (Entry entry : entries.values()) {
+			for (File tree : new File[] { this.configuration.getRendererCache().getTree(entry.md5), this.configuration.getSceneCache().getTree(entry.md5) }) {
+				if (tree.isDirectory()) {
+					entry.trees.add(tree);
+					try (Stream<Path> walk = Files.walk(tree.toPath())) {
+						entry.size += walk.mapToLong(path -> sizeOf(path, counted)).sum();
+					}
+					catch (IOException | UncheckedIOException e) {
+						this.log.debug("CacheQuota::list unable to measure " + tree.getAbsolutePath() + " (" + e + ")");
+					}
+				}
+			}
+		}
+		return entries;
+	}
+	
+	private static long sizeOf(Path path, Set<Object> counted) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			if (attributes.isRegularFile() == false || (attributes.fileKey() != null && counted.add(attributes.fileKey()) == false)) {
+				return 0;
+			}
+			return attributes.size();
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
+	
+	private static FileStore getStore(File file) {
+		try {
+			return Files.getFileStore(file.toPath());
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private Map<String, Usage> getUsages() {
+		if (this.usages == null) {
+			this.usages = new HashMap<>();
+			File file = this.getFile();
+			if (file != null && file.isFile()) {
+				try {
+					for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+						String[] parts = line.split(SEPARATOR);
+						if (parts.length == 3) {
+							this.usages.put(parts[0], new Usage(Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+						}
+					}
+				}
+				catch (IOException | NumberFormatException e) {
+					this.log.debug("CacheQuota::getUsages failed to read " + file.getAbsolutePath() + " (" + e + ")");
+				}
+			}
+		}
+		return this.usages;
+	}
+	
+	private void save() {
+		File file = this.getFile();
+		if (file == null) {
+			return;
+		}
+		
+		File temp = new File(file.getAbsolutePath() + ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, Usage> usage : this.getUsages().entrySet()) {
+					writer.write(usage.getKey() + SEPARATOR + usage.getValue().hits + SEPARATOR + usage.getValue().lastUse);
+					writer.newLine();
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			this.log.debug("CacheQuota::save failed to write " + file.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+		}
+	}
+	
+	private File getFile() {
+		File storage = this.configuration.getStorageDir();
+		return storage != null ? new File(storage, FILENAME) : null;
+	}
+	
+	private static class Usage {
+		private long hits; // jobs which used the archive
+		private long lastUse;
+		
+		private Usage(long hits, long lastUse) {
+			this.hits = hits;
+			this.lastUse = lastUse;
+		}
+	}
+	
+	/****************
+	 * An archive, its links in the other directories and its extracted trees
+	 */
+	private static class Entry {
+		private final String md5;
+		private final List<File> archives;
+		private final List<File> trees;
+		private long size; // in bytes
+		private long lastModified;
+		private boolean locked; // its shared download lock is held, see isLocked()
+		
+		private Entry(String md5) {
+			this.md5 = md5;
+			this.archives = new ArrayList<>();
+			this.trees = new ArrayList<>();
+			this.size = 0;
+			this.lastModified = 0;
+			this.locked = false;
+		}
+		
+		private boolean isOn(FileStore store) {
+			for (File file : this.archives) {
+				if (store.equals(getStore(file))) {
+					return true;
+				}
+			}
+			for (File file : this.trees) {
+				if (store.equals(getStore(file))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/****************
+ * Lines logged for a checkpoint, with a bounded memory usage whatever the length of the render.
+ * The first lines (start of the renderer) and the last ones (where the error usually is) are kept in memory, the lines in between are moved to a
+ * compressed temporary file. The file is a sequence of gzip members, one per block of lines, so it can be read back at any time without closing it.
+ */
+public class CheckPointLog {
+	private static final int HEAD_LINES = 1000;
+	private static final int TAIL_LINES = 10000;
+	private static final int SPILL_BLOCK_SIZE = 64 * 1024; // in chars
+	
+	private final List<String> head;
+	private final String[] tail; // ring buffer
+	private int tailStart;
+	private int tailSize;
+	
+	private final StringBuilder spillBlock; // lines waiting to be compressed to the spill file
+	private File spillFile;
+	private long lostLines; // lines which could not be written to the spill file
+	
+	public CheckPointLog() {
+		this.head = new ArrayList<>();
+		this.tail = new String[TAIL_LINES];
+		this.tailStart = 0;
+		this.tailSize = 0;
+		this.spillBlock = new StringBuilder();
+		this.spillFile = null;
+		this.lostLines = 0;
+	}
+	
+	public synchronized void add(String line) {
+		if (this.head.size() < HEAD_LINES) {
+			this.head.add(line);
+			return;
+		}
+		
+		if (this.tailSize < TAIL_LINES) {
+			this.tail[(this.tailStart + this.tailSize) % TAIL_LINES] = line;
+			this.tailSize++;
+			return;
+		}
+		
+		// the oldest line of the tail goes to the middle
+		this.spill(this.tail[this.tailStart]);
+		this.tail[this.tailStart] = line;
+		this.tailStart = (this.tailStart + 1) % TAIL_LINES;
+	}
+	
+	/**
+	 * Give all the lines of the checkpoint, in the order they have been logged. The middle of the log is read back from the spill file while the lines
+	 * are given, it is never fully loaded in memory.
+	 */
+	public synchronized void forEachLine(LineConsumer consumer) throws IOException {
+		for (String line : this.head) {
+			consumer.accept(line);
+		}
+		
+		if (this.spillFile != null) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(this.spillFile)), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					consumer.accept(line);
+				}
+			}
+			catch (IOException e) {
+				consumer.accept("(part of the log could not be read back from " + this.spillFile.getAbsolutePath() + ": " + e + ")");
+			}
+		}
+		if (this.lostLines > 0) {
+			consumer.accept("(" + this.lostLines + " lines lost, they could not be written to a temporary file)");
+		}
+		if (this.spillBlock.length() > 0) {
+			for (String line : this.spillBlock.toString().split("\n", -1)) {
+				if (line.isEmpty() == false) {
+					consumer.accept(line);
+				}
+			}
+		}
+		
+		for (int i = 0; i < this.tailSize; i++) {
+			consumer.accept(this.tail[(this.tailStart + i) % TAIL_LINES]);
+		}
+	}
+	
+	/**
+	 * Remove the spill file, the checkpoint must not be used afterwards
+	 */
+	public synchronized void discard() {
+		if (this.spillFile != null) {
+			this.spillFile.delete();
+			this.spillFile = null;
+		}
+		this.head.clear();
+		this.spillBlock.setLength(0);
+	}
+	
+	private void spill(String line) {
+		this.spillBlock.append(line).append('\n');
+		if (this.spillBlock.length() >= SPILL_BLOCK_SIZE) {
+			this.flushSpillBlock();
+		}
+	}
+	
+	private void flushSpillBlock() {
+		try {
+			if (this.spillFile == null) {
+				this.spillFile = File.createTempFile("farm_log_", ".gz");
+				this.spillFile.deleteOnExit();
+			}
+			// a complete gzip member per block, appended to the ones already in the file
+			try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(this.spillFile, true))) {
+				out.write(this.spillBlock.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		catch (IOException e) {
+			for (int i = 0; i < this.spillBlock.length(); i++) {
+				if (this.spillBlock.charAt(i) == '\n') {
+					this.lostLines++;
+				}
+			}
+		}
+		this.spillBlock.setLength(0);
+	}
+	
+	public interface LineConsumer {
+		void accept(String line) throws IOException;
+	}
+}
@@ -0,0 +1,211 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/****************
+ * Persistent index of the md5 of the archives stored in the cache directories.
+ * An entry is only trusted while the path, size, modification time and inode of the file are unchanged, so a cache scan costs a stat per file instead of a
+ * full read of every archive.
+ */
+public class ChecksumIndex {
+	public static final String FILENAME = "sheepit_checksum_index.txt";
+	
+	private static final String SEPARATOR = "\t";
+	
+	private final File indexFile;
+	private final Log log;
+	private final Map<String, Entry> entries;
+	private boolean dirty;
+	
+	public ChecksumIndex(File indexFile, Log log) {
+		this.indexFile = indexFile;
+		this.log = log;
+		this.entries = new HashMap<>();
+		this.dirty = false;
+		this.load();
+	}
+	
+	public File getIndexFile() {
+		return this.indexFile;
+	}
+	
+	/**
+	 * @return the md5 of the file, read from the index if the file has not changed since it was recorded, computed (and recorded) otherwise. An empty string
+	 * if the file cannot be read.
+	 */
+	public synchronized String md5(File file) {
+		Entry current = stat(file);
+		if (current == null) {
+			this.remove(file);
+			return "";
+		}
+		
+		Entry known = this.entries.get(file.getAbsolutePath());
+		if (known != null && known.sameFile(current)) {
+			return known.md5;
+		}
+		
+		String md5 = Utils.md5(file.getAbsolutePath());
+		if (md5.isEmpty() == false) {
+			current.md5 = md5;
+			this.entries.put(file.getAbsolutePath(), current);
+			this.dirty = true;
+		}
+		return md5;
+	}
+	
+	/**
+	 * Record an already known md5 for a file (for example computed while the file was being written)
+	 */
+	public synchronized void put(File file, String md5) {
+		Entry current = stat(file);
+		if (current == null || md5 == null || md5.isEmpty()) {
+			return;
+		}
+		current.md5 = md5;
+		this.entries.put(file.getAbsolutePath(), current);
+		this.dirty = true;
+		this.save();
+	}
+	
+	/**
+	 * Record the md5 of a copy (or hardlink) of an already indexed file without reading the copy
+	 */
+	public synchronized void copy(File from, File to) {
+		Entry known = this.entries.get(from.getAbsolutePath());
+		Entry source = stat(from);
+		if (known != null && source != null && known.sameFile(source)) {
+			this.put(to, known.md5);
+		}
+	}
+	
+	public synchronized void remove(File file) {
+		if (this.entries.remove(file.getAbsolutePath()) != null) {
+			this.dirty = true;
+			this.save();
+		}
+	}
+	
+	/**
+	 * Remove the entries of the files which no longer exist and write the index if it has been modified
+	 */
+	public synchronized void prune() {
+		Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+		while (it.hasNext()) {
+			if (new File(it.next().getKey()).isFile() == false) {
+				it.remove();
+				this.dirty = true;
+			}
+		}
+		this.save();
+	}
+	
+	public synchronized void save() {
+		if (this.dirty == false || this.indexFile == null) {
+			return;
+		}
+		
+		File parent = this.indexFile.getParentFile();
+		if (parent == null || parent.isDirectory() == false) {
+			return;
+		}
+		
+		File temp = new File(this.indexFile.getAbsolutePath() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+				Entry value = entry.getValue();
+				writer.write(value.md5 + SEPARATOR + value.size + SEPARATOR + value.lastModified + SEPARATOR + value.inode + SEPARATOR + entry.getKey());
+				writer.newLine();
+			}
+		}
+		catch (IOException e) {
+			this.log.debug("ChecksumIndex::save failed to write " + temp.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+			return;
+		}
+		
+		try {
+			try {
+				Files.move(temp.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			this.dirty = false;
+		}
+		catch (IOException e) {
+			this.log.debug("ChecksumIndex::save failed to replace " + this.indexFile.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+		}
+	}
+	
+	private void load() {
+		if (this.indexFile == null || this.indexFile.isFile() == false) {
+			return;
+		}
+		
+		try (BufferedReader reader = Files.newBufferedReader(this.indexFile.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(SEPARATOR, 5);
+				if (parts.length != 5) {
+					continue;
+				}
+				try {
+					Entry entry = new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+					this.entries.put(parts[4], entry);
+				}
+				catch (NumberFormatException e) {
+					// corrupted line, the file will be hashed again
+				}
+			}
+		}
+		catch (IOException e) {
+			this.log.debug("ChecksumIndex::load failed to read " + this.indexFile.getAbsolutePath() + " (" + e + ")");
+			this.entries.clear();
+		}
+	}
+	
+	private static Entry stat(File file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			if (attributes.isRegularFile() == false) {
+				return null;
+			}
+			Object fileKey = attributes.fileKey(); // (dev, inode) on unix, null on Windows
+			return new Entry(null, attributes.size(), attributes.lastModifiedTime().toMillis(), fileKey != null ? fileKey.toString() : "");
+		}
+		catch (IOException | SecurityException e) {
+			return null;
+		}
+	}
+	
+	private static class Entry {
+		private String md5;
+		private final long size;
+		private final long lastModified;
+		private final String inode;
+		
+		private Entry(String md5, long size, long lastModified, String inode) {
+			this.md5 = md5;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.inode = inode;
+		}
+		
+		private boolean sameFile(Entry other) {
+			return this.size == other.size && this.lastModified == other.lastModified && this.inode.equals(other.inode);
+		}
+	}
+}
@@ -19,9 +19,11 @@
 
 package com.sheepit.client;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.file.FileSystemException;
@@ -32,17 +34,18 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import com.sheepit.client.Error.ServerCode;
 import com.sheepit.client.Error.Type;
@@ -63,45 +66,57 @@ import com.sheepit.client.hardware.cpu.CPU;
 import com.sheepit.client.hardware.hwid.HWIdentifier;
 import com.sheepit.client.os.OS;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import okhttp3.HttpUrl;
 
 @Data public class Client {
 	public static final int MIN_JOB_ID = 20; //to distinguish between actual jobs and test frames
 	private static final Locale LOCALE = Locale.ENGLISH;
+	private static final long ERROR_COOLDOWN = 300000; // 5min
+	private static final long ERROR_REPORT_FLUSH_TIMEOUT = 60000; // before exiting
+	private static final long ERROR_REPORT_STOP_TIMEOUT = 5000; // when stopped, the user is waiting and a report might be waiting to be retried
 	private Gui gui;
 	private Server server;
 	private Configuration configuration;
 	private Log log;
-	private Job renderingJob;
+	private volatile List<RenderSlot> renderSlots; // renders running at the same time, see Configuration::renderSlots
 	private Job previousJob;
-	private BlockingQueue<QueuedJob> jobsToValidate;
-	private boolean isValidatingJob;
+	private volatile Job prefetchedJob; // next job, requested and prepared while the current one renders
+	private volatile Job prefetchingJob;
+	private boolean prefetching;
+	private UploadQueue uploadQueue;
+	private ErrorReporter errorReporter;
+	private CacheQuota cacheQuota;
+	private ArchiveCompactor archiveCompactor;
+	private final AtomicInteger preparations; // jobs being downloaded or extracted, the archive compactor waits for them
+	private volatile long errorCooldownEnd; // no job is requested before, after most errors
 	private long startTime;
 	private boolean sessionStarted;
 	
 	private boolean disableErrorSending;
-	private boolean running;
+	private volatile boolean running; // read by the threads waiting for a shared download
 	private boolean awaitingStop;
 	private boolean suspended;
 	private boolean shuttingdown;
 	
 	private int maxDownloadFileAttempts = 5;
 	
-	private int uploadQueueSize;
-	private long uploadQueueVolume;
-	private int noJobRetryIter;
-	
 	public Client(Gui gui_, Configuration configuration, String url_) {
 		this.configuration = configuration;
 		this.server = new Server(url_, this.configuration, this);
 		this.log = Log.getInstance(this.configuration);
 		this.gui = gui_;
-		this.renderingJob = null;
+		this.renderSlots = new ArrayList<>();
 		this.previousJob = null;
-		this.jobsToValidate = new ArrayBlockingQueue<QueuedJob>(5);
-		this.isValidatingJob = false;
+		this.prefetchedJob = null;
+		this.prefetchingJob = null;
+		this.prefetching = false;
+		this.uploadQueue = new UploadQueue(this, gui_, this.log);
+		this.errorReporter = new ErrorReporter(this.server, gui_, this.log);
+		this.cacheQuota = new CacheQuota(this.configuration, this.log);
+		this.preparations = new AtomicInteger(0);
+		this.archiveCompactor = new ArchiveCompactor(this.configuration, this.log, () -> this.preparations.get() > 0);
+		this.errorCooldownEnd = 0;
 		
 		this.disableErrorSending = false;
 		this.running = false;
@@ -109,10 +124,6 @@ import okhttp3.HttpUrl;
 		this.suspended = false;
 		this.shuttingdown = false;
 		
-		this.uploadQueueSize = 0;
-		this.uploadQueueVolume = 0;
-		this.noJobRetryIter = 0;
-		
 		this.sessionStarted = false;
 	}
 	
@@ -168,6 +179,8 @@ import okhttp3.HttpUrl;
 				}, this.configuration.getShutdownTime());
 			}
 			
+			this.errorReporter.start();
+			
 			//send "error" log containing config
 			step = log.newCheckPoint();
 			this.log.info("HWID: " + new HWIdentifier(log).getHardwareHash());
@@ -177,390 +190,552 @@ import okhttp3.HttpUrl;
 			
 			// Check integrity of all files in the working directories
 			this.configuration.cleanWorkingDirectory();
+			this.cacheQuota.reserve(null, 0, new HashSet<>(), 0);
+			this.archiveCompactor.start();
+			this.renderSlots = RenderSlot.create(this.configuration, this.gui, this.log);
 
 			this.startTime = new Date().getTime();
 			this.server.start(); // for staying alive
 			
-			// create a thread which will send the frame
-			Runnable runnable_sender = new Runnable() {
-				public void run() {
-					senderLoop();
-				}
-			};
-			Thread thread_sender = new Thread(runnable_sender);
-			thread_sender.start();
+			// create the threads which will send the frames, starting with the ones left by the previous run
+			File journalDirectory = this.configuration.getUploadJournalDir();
+			this.uploadQueue.start(journalDirectory != null ? new UploadJournal(journalDirectory, this.log) : null, this.configuration);
+			
+			if (this.configuration.getPrefetchProgress() >= 0) {
+				// create a thread which will prepare the next job while the current one renders
+				Runnable runnable_prefetch = new Runnable() {
+					public void run() {
+						prefetchLoop();
+					}
+				};
+				Thread thread_prefetch = new Thread(runnable_prefetch);
+				thread_prefetch.setDaemon(true);
+				thread_prefetch.start();
+			}
 			
 			do {
-				while (this.running) {
-					this.renderingJob = null;
+				int exitCode = this.runSlots();
+				if (exitCode != 0) {
+					return exitCode;
+				}
+				
+				// If we reach this point is bc the main loop (the one that controls all the workflow) has exited
+				// due to user requesting to exit the App and we are just waiting for the upload queue to empty
+				// If the user cancels the exit, then this.running will be true and the main loop will take
+				// control again
+				try {
+					Thread.sleep(2300); // wait a little bit
+					this.gui.status("Uploading rendered frames before exiting. Please wait");
+				}
+				catch (InterruptedException e3) {
+				}
+				
+				// This loop will remain valid until all the background uploads have
+				// finished (unless the stop() method has been triggered)
+			}
+			while (this.uploadQueue.size() > 0);
+		}
+		catch (Exception e1) {
+			// no exception should be raised in the actual launcher (applet or standalone)
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e1.printStackTrace(pw);
+			this.log.debug("Client::run exception(D) " + e1 + " stacktrace: " + sw.toString());
+			return -99; // the this.stop will be done after the return of this.run()
+		}
+		finally {
+			this.errorReporter.flush(ERROR_REPORT_FLUSH_TIMEOUT);
+		}
+		
+		if (this.shuttingdown) {
+			// Shutdown the computer using the appropriate command for the host OS
+			this.log.debug("Shutting down the computer in 1 minute");
+			
+			OS.getOS().shutdownComputer(1);
+		}
+		
+		this.gui.stop();
+		return 0;
+	}
+	
+	/**
+	 * Render with all the slots until the client is stopped, the first slot renders in the current thread
+	 *
+	 * @return 0, or the exit code of run() if a slot met an error the client can not recover from
+	 */
+	private int runSlots() throws Exception {
+		List<RenderSlot> slots = this.renderSlots;
+		if (slots.size() == 1) {
+			return this.renderLoop(slots.get(0));
+		}
+		
+		int[] exitCodes = new int[slots.size()];
+		List<Thread> threads = new ArrayList<>();
+		for (RenderSlot slot : slots.subList(1, slots.size())) {
+			Thread thread = new Thread(() -> exitCodes[slot.getIndex()] = this.runSlot(slot), "Render slot " + (slot.getIndex() + 1));
+			thread.start();
+			threads.add(thread);
+		}
+		exitCodes[0] = this.runSlot(slots.get(0));
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		for (int exitCode : exitCodes) {
+			if (exitCode != 0) {
+				return exitCode;
+			}
+		}
+		return 0;
+	}
+	
+	private int runSlot(RenderSlot slot) {
+		int exitCode;
+		try {
+			exitCode = this.renderLoop(slot);
+		}
+		catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			e.printStackTrace(new PrintWriter(sw));
+			this.log.debug("Client::runSlot exception " + e + " stacktrace: " + sw.toString());
+			exitCode = -99;
+		}
+		if (slot.getWarmRenderer() != null) {
+			slot.getWarmRenderer().close();
+		}
+		if (exitCode != 0) {
+			this.running = false; // the other slots end their current render, then the client stops
+		}
+		return exitCode;
+	}
+	
+	/**
+	 * Request and render jobs in a slot until the client is stopped
+	 *
+	 * @return 0, or the exit code of run() if the slot met an error the client can not recover from
+	 */
+	private int renderLoop(RenderSlot slot) throws Exception {
+		Gui gui = slot.getGui();
+		int step;
+		Error.Type ret;
+		while (this.running) {
+			slot.setJob(null);
+			this.releaseSlot(slot);
 
-					synchronized (this) {
-						if (this.suspended) {
-							this.gui.status("Client paused", true);
-						}
-						while (this.suspended && !this.shuttingdown) {
-							wait();
-						}
+			synchronized (this) {
+				if (this.suspended) {
+					gui.status("Client paused", true);
+				}
+				while (this.suspended && !this.shuttingdown) {
+					wait();
+				}
+			}
+			
+			if (this.errorCooldownEnd > new Date().getTime()) {
+				gui.status(String.format("Waiting until %tR after an error before requesting job", new Date(this.errorCooldownEnd)));
+				while (this.running && this.errorCooldownEnd > new Date().getTime()) {
+					try {
+						Thread.sleep(1000);
+					}
+					catch (InterruptedException e3) {
+					}
+				}
+				if (this.running == false) {
+					continue;
+				}
+			}
+			
+			if (this.reserveSlot(slot) == false) {
+				gui.status("Waiting for a frame to be uploaded or rendered");
+				while (this.running && this.reserveSlot(slot) == false) {
+					try {
+						Thread.sleep(4000);
 					}
+					catch (InterruptedException e3) {
+					}
+				}
+				if (this.running == false) {
+					continue;
+				}
+			}
+			
+			step = this.log.newCheckPoint();
+			try {
+				Calendar next_request = this.nextJobRequest();
+				if (next_request != null) {
+					// wait
+					Date now = new Date();
+					gui.status(String.format("Waiting until %tR before requesting job", next_request));
+					long wait = next_request.getTimeInMillis() - now.getTime();
+					if (wait < 0) {
+						// it means the client has to wait until the next day
+						wait += 24 * 3600 * 1000;
+					}
+					try {
+						Thread.sleep(wait);
+					}
+					catch (InterruptedException e3) {
 					
-					step = this.log.newCheckPoint();
+					}
+					catch (IllegalArgumentException e3) {
+						this.log.error("Client::run sleepA failed " + e3);
+					}
+				}
+				slot.setJob(this.takePrefetchedJob());
+				if (slot.getJob() == null) {
+					gui.status("Requesting Job");
+					slot.setJob(this.server.requestJob(slot.getConfiguration(), gui));
+				}
+			}
+			catch (FermeExceptionNoRightToRender e) {
+				gui.error("User does not have enough right to render scene");
+				return -2;
+			}
+			catch (FermeExceptionSessionDisabled e) {
+				gui.error(Error.humanString(Error.Type.SESSION_DISABLED));
+				// should wait forever to actually display the message to the user
+				while (shuttingdown == false) {
+					try {
+						Thread.sleep(1000);
+					}
+					catch (InterruptedException e1) {
+					}
+				}
+			}
+			catch (FermeExceptionSessionDisabledDenoisingNotSupported e) {
+				gui.error(Error.humanString(Error.Type.DENOISING_NOT_SUPPORTED));
+				// should wait forever to actually display the message to the user
+				while (shuttingdown == false) {
+					try {
+						Thread.sleep(1000);
+					}
+					catch (InterruptedException e1) {
+					}
+				}
+			}
+			catch (FermeExceptionNoRendererAvailable e) {
+				gui.error(Error.humanString(Error.Type.RENDERER_NOT_AVAILABLE));
+				// should wait forever to actually display the message to the user
+				while (shuttingdown == false) {
+					try {
+						Thread.sleep(1000);
+					}
+					catch (InterruptedException e1) {
+					}
+				}
+			}
+			catch (FermeExceptionNoSession e) {
+				this.log.debug("User has no session and needs to re-authenticate");
+				ret = this.server.getConfiguration();
+				if (ret != Error.Type.OK) {
+					slot.setJob(null);
+				}
+				else {
+					this.startTime = new Date().getTime(); // reset start session time because the server did it
 					try {
 						Calendar next_request = this.nextJobRequest();
 						if (next_request != null) {
 							// wait
 							Date now = new Date();
-							this.gui.status(String.format("Waiting until %tR before requesting job", next_request));
-							long wait = next_request.getTimeInMillis() - now.getTime();
-							if (wait < 0) {
-								// it means the client has to wait until the next day
-								wait += 24 * 3600 * 1000;
-							}
+							gui.status(String.format("Waiting until %tR before requesting job", next_request));
+							long timeToSleep = next_request.getTimeInMillis() - now.getTime();
 							try {
-								Thread.sleep(wait);
+								int timeSlept = 0;
+								while (timeSlept < timeToSleep && this.running && !this.shuttingdown) {
+									Thread.sleep(1000);
+									timeSlept += 1000;
+								}
 							}
 							catch (InterruptedException e3) {
 							
 							}
 							catch (IllegalArgumentException e3) {
-								this.log.error("Client::run sleepA failed " + e3);
-							}
-						}
-						this.gui.status("Requesting Job");
-						this.renderingJob = this.server.requestJob();
-					}
-					catch (FermeExceptionNoRightToRender e) {
-						this.gui.error("User does not have enough right to render scene");
-						return -2;
-					}
-					catch (FermeExceptionSessionDisabled e) {
-						this.gui.error(Error.humanString(Error.Type.SESSION_DISABLED));
-						// should wait forever to actually display the message to the user
-						while (shuttingdown == false) {
-							try {
-								Thread.sleep(1000);
-							}
-							catch (InterruptedException e1) {
-							}
-						}
-					}
-					catch (FermeExceptionSessionDisabledDenoisingNotSupported e) {
-						this.gui.error(Error.humanString(Error.Type.DENOISING_NOT_SUPPORTED));
-						// should wait forever to actually display the message to the user
-						while (shuttingdown == false) {
-							try {
-								Thread.sleep(1000);
-							}
-							catch (InterruptedException e1) {
+								this.log.error("Client::run sleepB failed " + e3);
 							}
 						}
-					}
-					catch (FermeExceptionNoRendererAvailable e) {
-						this.gui.error(Error.humanString(Error.Type.RENDERER_NOT_AVAILABLE));
-						// should wait forever to actually display the message to the user
-						while (shuttingdown == false) {
-							try {
-								Thread.sleep(1000);
-							}
-							catch (InterruptedException e1) {
-							}
-						}
-					}
-					catch (FermeExceptionNoSession e) {
-						this.log.debug("User has no session and needs to re-authenticate");
-						ret = this.server.getConfiguration();
-						if (ret != Error.Type.OK) {
-							this.renderingJob = null;
-						}
-						else {
-							this.startTime = new Date().getTime(); // reset start session time because the server did it
-							try {
-								Calendar next_request = this.nextJobRequest();
-								if (next_request != null) {
-									// wait
-									Date now = new Date();
-									this.gui.status(String.format("Waiting until %tR before requesting job", next_request));
-									long timeToSleep = next_request.getTimeInMillis() - now.getTime();
-									try {
-										int timeSlept = 0;
-										while (timeSlept < timeToSleep && this.running && !this.shuttingdown) {
-											Thread.sleep(1000);
-											timeSlept += 1000;
-										}
-									}
-									catch (InterruptedException e3) {
-									
-									}
-									catch (IllegalArgumentException e3) {
-										this.log.error("Client::run sleepB failed " + e3);
-									}
-								}
 
-								// if we have broken the wait loop because a stop or shutdown signal, go back to the main loop to exit
-								if (!this.running || this.shuttingdown) {
-									continue;
-								}
-
-								this.gui.status("Requesting Job");
-								this.renderingJob = this.server.requestJob();
-							}
-							catch (FermeException e1) {
-								this.renderingJob = null;
-							}
+						// if we have broken the wait loop because a stop or shutdown signal, go back to the main loop to exit
+						if (!this.running || this.shuttingdown) {
+							continue;
 						}
+
+						gui.status("Requesting Job");
+						slot.setJob(this.server.requestJob(slot.getConfiguration(), gui));
 					}
-					catch (FermeServerDown e) {
-						int wait = ThreadLocalRandom.current().nextInt(10, 30 + 1); // max is exclusive
-						int time_sleep = 1000 * 60 * wait;
-						this.gui.status(String.format("Cannot connect to the server. Please check your connectivity. Will try again at %tR",
-								new Date(new Date().getTime() + time_sleep)));
-						try {
-							int timeSlept = 0;
-							while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
-								Thread.sleep(1000);
-								timeSlept += 1000;
-							}
-						}
-						catch (InterruptedException e1) {
-							return -3;
-						}
-						this.log.removeCheckPoint(step);
-						continue; // go back to ask job
-					}
-					catch (FermeExceptionServerOverloaded e) {
-						int wait = ThreadLocalRandom.current().nextInt(10, 30 + 1); // max is exclusive
-						int time_sleep = 1000 * 60 * wait;
-						this.gui.status(String.format("The server is overloaded and cannot allocate a job. Will try again at %tR",
-								new Date(new Date().getTime() + time_sleep)));
-						try {
-							int timeSlept = 0;
-							while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
-								Thread.sleep(1000);
-								timeSlept += 1000;
-							}
-						}
-						catch (InterruptedException e1) {
-							return -3;
-						}
-						this.log.removeCheckPoint(step);
-						continue; // go back to ask job
+					catch (FermeException e1) {
+						slot.setJob(null);
 					}
-					catch (FermeExceptionServerInMaintenance e) {
-						int wait = ThreadLocalRandom.current().nextInt(20, 30 + 1); // max is exclusive
-						int time_sleep = 1000 * 60 * wait;
-						this.gui.status(String.format("The server is under maintenance and cannot allocate a job. Will try again at %tR",
-								new Date(new Date().getTime() + time_sleep)));
-						try {
-							int timeSlept = 0;
-							while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
-								Thread.sleep(1000);
-								timeSlept += 1000;
-							}
-						}
-						catch (InterruptedException e1) {
-							return -3;
-						}
-						this.log.removeCheckPoint(step);
-						continue; // go back to ask job
+				}
+			}
+			catch (FermeServerDown e) {
+				int wait = ThreadLocalRandom.current().nextInt(10, 30 + 1); // max is exclusive
+				int time_sleep = 1000 * 60 * wait;
+				gui.status(String.format("Cannot connect to the server. Please check your connectivity. Will try again at %tR",
+						new Date(new Date().getTime() + time_sleep)));
+				try {
+					int timeSlept = 0;
+					while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
+						Thread.sleep(1000);
+						timeSlept += 1000;
 					}
-					catch (FermeExceptionBadResponseFromServer e) {
-						int wait = ThreadLocalRandom.current().nextInt(15, 30 + 1); // max is exclusive
-						int time_sleep = 1000 * 60 * wait;
-						this.gui.status(String.format("Bad answer from the server. Will try again at %tR", new Date(new Date().getTime() + time_sleep)));
-						try {
-							int timeSlept = 0;
-							while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
-								Thread.sleep(1000);
-								timeSlept += 1000;
-							}
-						}
-						catch (InterruptedException e1) {
-							return -3;
-						}
-						this.log.removeCheckPoint(step);
-						continue; // go back to ask job
+				}
+				catch (InterruptedException e1) {
+					return -3;
+				}
+				this.log.removeCheckPoint(step);
+				continue; // go back to ask job
+			}
+			catch (FermeExceptionServerOverloaded e) {
+				int wait = ThreadLocalRandom.current().nextInt(10, 30 + 1); // max is exclusive
+				int time_sleep = 1000 * 60 * wait;
+				gui.status(String.format("The server is overloaded and cannot allocate a job. Will try again at %tR",
+						new Date(new Date().getTime() + time_sleep)));
+				try {
+					int timeSlept = 0;
+					while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
+						Thread.sleep(1000);
+						timeSlept += 1000;
 					}
-					catch (FermeException e) {
-						this.gui.error("Client::run exception requestJob (1) " + e.getMessage());
-						StringWriter sw = new StringWriter();
-						PrintWriter pw = new PrintWriter(sw);
-						e.printStackTrace(pw);
-						this.log.debug("Client::run exception " + e + " stacktrace: " + sw.toString());
-						this.sendError(step);
-						this.log.removeCheckPoint(step);
-						continue;
+				}
+				catch (InterruptedException e1) {
+					return -3;
+				}
+				this.log.removeCheckPoint(step);
+				continue; // go back to ask job
+			}
+			catch (FermeExceptionServerInMaintenance e) {
+				int wait = ThreadLocalRandom.current().nextInt(20, 30 + 1); // max is exclusive
+				int time_sleep = 1000 * 60 * wait;
+				gui.status(String.format("The server is under maintenance and cannot allocate a job. Will try again at %tR",
+						new Date(new Date().getTime() + time_sleep)));
+				try {
+					int timeSlept = 0;
+					while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
+						Thread.sleep(1000);
+						timeSlept += 1000;
 					}
-					
-					if (this.renderingJob == null) { // no job
-						int[] retrySchemeInMilliSeconds = { 300000, 480000, 720000, 900000, 1200000 };    // 5, 8, 12, 15 and 20 minutes
-						
-						int time_sleep = retrySchemeInMilliSeconds[(this.noJobRetryIter < retrySchemeInMilliSeconds.length) ?
-								this.noJobRetryIter++ :
-								(retrySchemeInMilliSeconds.length - 1)];
-						this.gui.status(String.format("No job available. Will try again at %tR", new Date(new Date().getTime() + time_sleep)));
-						int time_slept = 0;
-						while (time_slept < time_sleep && this.running && this.shuttingdown == false) {
-							try {
-								Thread.sleep(250);
-							}
-							catch (InterruptedException e) {
-								return -3;
-							}
-							time_slept += 250;
-						}
-						this.log.removeCheckPoint(step);
-						continue; // go back to ask job
+				}
+				catch (InterruptedException e1) {
+					return -3;
+				}
+				this.log.removeCheckPoint(step);
+				continue; // go back to ask job
+			}
+			catch (FermeExceptionBadResponseFromServer e) {
+				int wait = ThreadLocalRandom.current().nextInt(15, 30 + 1); // max is exclusive
+				int time_sleep = 1000 * 60 * wait;
+				gui.status(String.format("Bad answer from the server. Will try again at %tR", new Date(new Date().getTime() + time_sleep)));
+				try {
+					int timeSlept = 0;
+					while (timeSlept < time_sleep && this.running && !this.shuttingdown) {
+						Thread.sleep(1000);
+						timeSlept += 1000;
 					}
-					
-					this.log.debug("Got work to do id: " + this.renderingJob.getId() + " frame: " + this.renderingJob.getFrameNumber());
-					
-					// As the server allocated a new job to this client, reset the no_job waiting algorithm
-					this.noJobRetryIter = 0;
-					
-					ret = this.work(this.renderingJob);
-					if (ret == Error.Type.NO_SPACE_LEFT_ON_DEVICE || ret == Error.Type.PATH_INVALID || ret == Error.Type.NO_WRITE_PERMISSION ) {
-						Job frame_to_reset = this.renderingJob; // copy it because the sendError will take ~5min to execute
-						this.renderingJob = null;
-						this.gui.error(Error.humanString(ret));
-						this.sendError(step, frame_to_reset, ret);
-						this.log.removeCheckPoint(step);
-						return -50;
+				}
+				catch (InterruptedException e1) {
+					return -3;
+				}
+				this.log.removeCheckPoint(step);
+				continue; // go back to ask job
+			}
+			catch (FermeException e) {
+				gui.error("Client::run exception requestJob (1) " + e.getMessage());
+				StringWriter sw = new StringWriter();
+				PrintWriter pw = new PrintWriter(sw);
+				e.printStackTrace(pw);
+				this.log.debug("Client::run exception " + e + " stacktrace: " + sw.toString());
+				this.sendError(step);
+				this.log.removeCheckPoint(step);
+				continue;
+			}
+			
+			if (slot.getJob() == null) { // no job
+				int[] retrySchemeInMilliSeconds = { 300000, 480000, 720000, 900000, 1200000 };    // 5, 8, 12, 15 and 20 minutes
+				
+				int retry = slot.getNoJobRetryIter();
+				int time_sleep = retrySchemeInMilliSeconds[Math.min(retry, retrySchemeInMilliSeconds.length - 1)];
+				slot.setNoJobRetryIter(retry + 1);
+				if (slot.getWarmRenderer() != null) {
+					slot.getWarmRenderer().close(); // do not hold the memory of the scene while waiting
+				}
+				gui.status(String.format("No job available. Will try again at %tR", new Date(new Date().getTime() + time_sleep)));
+				int time_slept = 0;
+				while (time_slept < time_sleep && this.running && this.shuttingdown == false) {
+					try {
+						Thread.sleep(250);
 					}
-					
-					if (ret != Error.Type.OK) {
-						Job currentJob = this.renderingJob; // copy it because the sendError will take ~5min to execute
-						this.renderingJob = null;
-						this.gui.error(Error.humanString(ret));
-						this.sendError(step, currentJob, ret);
-						this.log.removeCheckPoint(step);
-						
-						// Initial test frames always have the Job ID below 20. If we have any error while trying to render the initial frame just
-						// halt the execution
-						if (Integer.parseInt(currentJob.getId()) < MIN_JOB_ID) {
-							// Add the proper explanation to the existing error message and keep the client waiting forever to ensure the user sees the error
-							this.gui.error(Error.humanString(ret) + " The error happened during the test frame render. Restart the client and try again.");
-							while (shuttingdown == false) {
-								try {
-									Thread.sleep(1000);
-								}
-								catch (InterruptedException e1) {
-								}
-							}
-							break;	// if the shutdown signal is triggered then exit the while (this.running) loop to initiate the shutdown process
-						}
-						
-						continue;
+					catch (InterruptedException e) {
+						return -3;
 					}
-					
-					if (this.renderingJob.isSynchronousUpload()) { // power or compute_method job, need to upload right away
-						this.gui.status(String.format("Uploading frame (%.2fMB)", (this.renderingJob.getOutputImageSize() / 1024.0 / 1024.0)));
-						
-						ret = confirmJob(this.renderingJob, step);
-						if (ret != Error.Type.OK) {
-							gui.error("Client::run problem with confirmJob (returned " + ret + ")");
-							sendError(step, this.renderingJob, Error.Type.VALIDATION_FAILED);
+					time_slept += 250;
+				}
+				this.log.removeCheckPoint(step);
+				continue; // go back to ask job
+			}
+			
+			this.log.debug("Got work to do id: " + slot.getJob().getId() + " frame: " + slot.getJob().getFrameNumber());
+			
+			// As the server allocated a new job to this client, reset the no_job waiting algorithm
+			slot.setNoJobRetryIter(0);
+			
+			slot.getJob().setWarmRenderer(slot.getWarmRenderer());
+			ret = this.work(slot.getJob());
+			if (ret == Error.Type.NO_SPACE_LEFT_ON_DEVICE || ret == Error.Type.PATH_INVALID || ret == Error.Type.NO_WRITE_PERMISSION ) {
+				Job frame_to_reset = slot.getJob(); // copy it, the job of the slot is reset before the error is reported
+				slot.setJob(null);
+				gui.error(Error.humanString(ret));
+				this.sendError(step, frame_to_reset, ret);
+				this.log.removeCheckPoint(step);
+				return -50;
+			}
+			
+			if (ret != Error.Type.OK) {
+				Job currentJob = slot.getJob(); // copy it, the job of the slot is reset before the error is reported
+				slot.setJob(null);
+				gui.error(Error.humanString(ret));
+				this.sendError(step, currentJob, ret);
+				this.log.removeCheckPoint(step);
+				
+				// Initial test frames always have the Job ID below 20. If we have any error while trying to render the initial frame just
+				// halt the execution
+				if (Integer.parseInt(currentJob.getId()) < MIN_JOB_ID) {
+					// Add the proper explanation to the existing error message and keep the client waiting forever to ensure the user sees the error
+					gui.error(Error.humanString(ret) + " The error happened during the test frame render. Restart the client and try again.");
+					while (shuttingdown == false) {
+						try {
+							Thread.sleep(1000);
 						}
-					}
-					else {
-						this.gui.status(String.format("Queuing frame for upload (%.2fMB)", (this.renderingJob.getOutputImageSize() / 1024.0 / 1024.0)));
-						
-						this.jobsToValidate.add(new QueuedJob(step, this.renderingJob));
-						
-						this.uploadQueueSize++;
-						this.uploadQueueVolume += this.renderingJob.getOutputImageSize();
-						this.gui.displayUploadQueueStats(uploadQueueSize, uploadQueueVolume);
-						
-						this.renderingJob = null;
-					}
-					
-					if (this.shouldWaitBeforeRender()) {
-						this.gui.status("Sending frames. Please wait");
-						
-						while (this.shouldWaitBeforeRender()) {
-							try {
-								Thread.sleep(4000); // wait a little bit
-							}
-							catch (InterruptedException e3) {
-							}
+						catch (InterruptedException e1) {
 						}
 					}
-					this.log.removeCheckPoint(step);
+					break;	// if the shutdown signal is triggered then exit the while (this.running) loop to initiate the shutdown process
 				}
 				
-				// If we reach this point is bc the main loop (the one that controls all the workflow) has exited
-				// due to user requesting to exit the App and we are just waiting for the upload queue to empty
-				// If the user cancels the exit, then this.running will be true and the main loop will take
-				// control again
-				try {
-					Thread.sleep(2300); // wait a little bit
-					this.gui.status("Uploading rendered frames before exiting. Please wait");
-				}
-				catch (InterruptedException e3) {
+				continue;
+			}
+			
+			if (slot.getJob().isSynchronousUpload()) { // power or compute_method job, need to upload right away
+				gui.status(String.format("Uploading frame (%.2fMB)", (slot.getJob().getOutputImageSize() / 1024.0 / 1024.0)));
+				
+				ret = confirmJob(slot.getJob(), step);
+				if (ret != Error.Type.OK) {
+					gui.error("Client::run problem with confirmJob (returned " + ret + ")");
+					sendError(step, slot.getJob(), Error.Type.VALIDATION_FAILED);
 				}
+			}
+			else {
+				gui.status(String.format("Queuing frame for upload (%.2fMB)", (slot.getJob().getOutputImageSize() / 1024.0 / 1024.0)));
 				
-				// This loop will remain valid until all the background uploads have
-				// finished (unless the stop() method has been triggered)
+				this.uploadQueue.add(step, slot.getJob());
+				
+				slot.setJob(null);
 			}
-			while (this.uploadQueueSize > 0);
-		}
-		catch (Exception e1) {
-			// no exception should be raised in the actual launcher (applet or standalone)
-			StringWriter sw = new StringWriter();
-			PrintWriter pw = new PrintWriter(sw);
-			e1.printStackTrace(pw);
-			this.log.debug("Client::run exception(D) " + e1 + " stacktrace: " + sw.toString());
-			return -99; // the this.stop will be done after the return of this.run()
-		}
-		
-		if (this.shuttingdown) {
-			// Shutdown the computer using the appropriate command for the host OS
-			this.log.debug("Shutting down the computer in 1 minute");
 			
-			OS.getOS().shutdownComputer(1);
+			this.releaseSlot(slot);
+			if (this.shouldWaitBeforeRender()) {
+				gui.status("Sending frames. Please wait");
+				
+				while (this.shouldWaitBeforeRender()) {
+					try {
+						Thread.sleep(4000); // wait a little bit
+					}
+					catch (InterruptedException e3) {
+					}
+				}
+			}
+			this.log.removeCheckPoint(step);
 		}
 		
-		this.gui.stop();
 		return 0;
 	}
 	
-	public synchronized int stop() {
-		this.running = false;
-		this.disableErrorSending = true;
-		
-		if (this.renderingJob != null) {
-			this.gui.status("Stopping");
+	public int stop() {
+		synchronized (this) {
+			this.running = false;
+			this.disableErrorSending = true;
 			
-			if (this.renderingJob.getProcessRender().getProcess() != null) {
-				this.renderingJob.setAskForRendererKill(true);
-				OS.getOS().kill(this.renderingJob.getProcessRender().getProcess());
+			List<Job> jobs = this.getRenderingJobs();
+			if (jobs.isEmpty() == false) {
+				this.gui.status("Stopping");
+				
+				for (Job job : jobs) {
+					if (job.getProcessRender().getProcess() != null) {
+						job.setAskForRendererKill(true);
+						job.getProcessRender().kill();
+					}
+				}
+			}
+			for (RenderSlot slot : this.renderSlots) {
+				if (slot.getWarmRenderer() != null) {
+					slot.getWarmRenderer().close();
+				}
+			}
+			
+			this.configuration.removeWorkingDirectory();
+			
+			if (this.server == null) {
+				return 0;
 			}
 		}
-
-		this.configuration.removeWorkingDirectory();
 		
-		if (this.server == null) {
-			return 0;
+		// stop() is also called by the shutdown hook, the client does not necessarily go back to run(). Not under the lock of the client, the render
+		// slots and the upload workers must not be blocked meanwhile.
+		this.errorReporter.flush(ERROR_REPORT_STOP_TIMEOUT);
+		
+		Server server;
+		synchronized (this) {
+			server = this.server;
+			this.server = null;
+		}
+		if (server == null) {
+			return 0; // stopped meanwhile by another thread
 		}
 		
-		if (this.server.getPage("logout").isEmpty() == false) {
+		if (server.getPage("logout").isEmpty() == false) {
 			this.gui.status("Disconnecting from SheepIt server");
 			
 			try {
-				this.server.HTTPRequest(this.server.getPage("logout"));
+				server.HTTPRequest(server.getPage("logout"));
 			}
 			catch (IOException e) {
 				// nothing to do: if the logout failed that's ok
 			}
 		}
-		this.server.interrupt();
-		try {
-			this.server.join();
-		}
-		catch (InterruptedException e) {
-		}
-		
-		this.server = null;
-		
-		return 0;
+		server.interrupt();
+		try {
+			server.join();
+		}
+		catch (InterruptedException e) {
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * @return the job of the first render slot rendering one, null if none is
+	 */
+	public Job getRenderingJob() {
+		for (RenderSlot slot : this.renderSlots) {
+			Job job = slot.getJob();
+			if (job != null) {
+				return job;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the jobs of all the render slots
+	 */
+	public List<Job> getRenderingJobs() {
+		List<Job> jobs = new ArrayList<>();
+		for (RenderSlot slot : this.renderSlots) {
+			Job job = slot.getJob();
+			if (job != null) {
+				jobs.add(job);
+			}
+		}
+		return jobs;
 	}
 	
 	public void suspend() {
@@ -570,7 +745,7 @@ import okhttp3.HttpUrl;
 	
 	public synchronized void resume() {
 		suspended = false;
-		notify();
+		notifyAll(); // all the render slots
 	}
 	
 	public void askForStop() {
@@ -585,49 +760,6 @@ import okhttp3.HttpUrl;
 		this.awaitingStop = false;
 	}
 	
-	public int senderLoop() {
-		int step = -1;
-		Error.Type ret = null;
-		while (true) {
-			QueuedJob queuedJob = null;
-			try {
-				queuedJob = jobsToValidate.take();
-				step = queuedJob.checkpoint;	// retrieve the checkpoint attached to the job
-				
-				this.log.debug(step, "will validate " + queuedJob.job);
-				
-				ret = confirmJob(queuedJob.job, step);
-				if (ret != Error.Type.OK) {
-					this.gui.error(Error.humanString(ret));
-					this.log.debug(step, "Client::senderLoop confirm failed, ret: " + ret);
-				}
-			}
-			catch (InterruptedException e) {
-				this.log.error(step, "Client::senderLoop Exception " + e.getMessage());
-			}
-			finally {
-				if (ret != Error.Type.OK) {
-					if (queuedJob.job != null) {
-						sendError(step, queuedJob.job, ret);
-					}
-					else {
-						sendError(step);
-					}
-				}
-				
-				// Remove the checkpoint information
-				log.removeCheckPoint(step);
-				
-				this.uploadQueueSize--;
-				if (queuedJob.job != null) {
-					this.uploadQueueVolume -= queuedJob.job.getOutputImageSize();
-				}
-				
-				this.gui.displayUploadQueueStats(this.uploadQueueSize, this.uploadQueueVolume);
-			}
-		}
-	}
-	
 	protected void sendError(int step_) {
 		this.sendError(step_, null, null);
 	}
@@ -640,13 +772,11 @@ import okhttp3.HttpUrl;
 		
 		this.log.debug("Sending error to server (type: " + error + ")");
 		try {
-			File temp_file = File.createTempFile("farm_", ".txt");
-			temp_file.createNewFile();
-			temp_file.deleteOnExit();
-			FileOutputStream writer = new FileOutputStream(temp_file);
+			ByteArrayOutputStream report = new ByteArrayOutputStream();
+			OutputStream writer = new BufferedOutputStream(new GZIPOutputStream(report));
 			
 			// Create a header with the information summarised for easier admin error analysis
-			Configuration conf = this.configuration;
+			Configuration conf = job_to_reset_ != null ? job_to_reset_.getConfiguration() : this.configuration; // the cores and the GPU of its render slot
 			CPU cpu = OS.getOS().getCPU();
 			
 			StringBuilder logHeader = new StringBuilder()
@@ -673,12 +803,12 @@ import okhttp3.HttpUrl;
 			// Insert the info at the beginning of the error log
 			writer.write(logHeader.toString().getBytes());
 			
-			Optional<ArrayList<String>> logs = this.log.getForCheckPoint(step_);
+			Optional<CheckPointLog> logs = this.log.getForCheckPoint(step_);
 			if (logs.isPresent()) {
-				for (String line : logs.get()) {
+				logs.get().forEachLine(line -> {
 					writer.write(line.getBytes());
 					writer.write('\n');
-				}
+				});
 			}
 			
 			writer.close();
@@ -690,8 +820,7 @@ import okhttp3.HttpUrl;
 				remoteURL.addQueryParameter("render_time", Integer.toString(job_to_reset_.getProcessRender().getRenderDuration()));
 				remoteURL.addQueryParameter("memoryused", Long.toString(job_to_reset_.getProcessRender().getPeakMemoryUsed()));
 			}
-			this.server.HTTPSendFile(remoteURL.build().toString(), temp_file.getAbsolutePath(), step_, this.gui);
-			temp_file.delete();
+			this.errorReporter.add(remoteURL.build().toString(), report.toByteArray(), step_);
 		}
 		catch (Exception e) {
 			StringWriter sw = new StringWriter();
@@ -706,11 +835,7 @@ import okhttp3.HttpUrl;
 			// do nothing, we can ask for a job right away
 		}
 		else {
-			try {
-				Thread.sleep(300000); // sleeping for 5min
-			}
-			catch (InterruptedException e) {
-			}
+			this.errorCooldownEnd = new Date().getTime() + ERROR_COOLDOWN; // the render slots wait before asking for a job
 		}
 	}
 	
@@ -749,9 +874,11 @@ import okhttp3.HttpUrl;
 	
 	public Error.Type work(final Job ajob) {
 		Error.Type downloadRet;
+		Gui gui = ajob.getGui();
 		
 		gui.setRenderingProjectName(ajob.getName());
 		
+		this.preparations.incrementAndGet();
 		try {
 			downloadRet = this.downloadExecutable(ajob);
 			if (downloadRet != Error.Type.OK) {
@@ -767,12 +894,22 @@ import okhttp3.HttpUrl;
 				return downloadRet;
 			}
 			
+			this.cacheQuota.used(ajob.getRendererMD5());
+			this.cacheQuota.used(ajob.getSceneMD5());
+			
 			int ret = this.prepareWorkingDirectory(ajob); // decompress renderer and scene archives
 			if (ret != 0) {
 				gui.setRenderingProjectName("");
 				this.log.error("Client::work problem with this.prepareWorkingDirectory (ret " + ret + ")");
 				return Error.Type.CAN_NOT_CREATE_DIRECTORY;
 			}
+			
+			ret = this.prepareSceneView(ajob);
+			if (ret != 0) {
+				gui.setRenderingProjectName("");
+				this.log.error("Client::work problem with this.prepareSceneView (ret " + ret + ")");
+				return Error.Type.CAN_NOT_CREATE_DIRECTORY;
+			}
 		}
 		catch (FermeException e) {
 			gui.setRenderingProjectName("");
@@ -789,6 +926,9 @@ import okhttp3.HttpUrl;
 				return Error.Type.UNKNOWN;
 			}
 		}
+		finally {
+			this.preparations.decrementAndGet();
+		}
 		
 		final File scene_file = new File(ajob.getScenePath());
 		File renderer_file = new File(ajob.getRendererPath());
@@ -797,7 +937,7 @@ import okhttp3.HttpUrl;
 			gui.setRenderingProjectName("");
 			this.log.error("Client::work job preparation failed (scene file '" + scene_file.getAbsolutePath()
 					+ "' does not exist), cleaning directory in hope to recover");
-			this.configuration.cleanWorkingDirectory();
+			this.cleanWorkingDirectory(ajob);
 			return Error.Type.MISSING_SCENE;
 		}
 		
@@ -805,7 +945,7 @@ import okhttp3.HttpUrl;
 			gui.setRenderingProjectName("");
 			this.log.error("Client::work job preparation failed (renderer file '" + renderer_file.getAbsolutePath()
 					+ "' does not exist), cleaning directory in hope to recover");
-			this.configuration.cleanWorkingDirectory();
+			this.cleanWorkingDirectory(ajob);
 			return Error.Type.MISSING_RENDERER;
 		}
 		
@@ -813,8 +953,8 @@ import okhttp3.HttpUrl;
 			@Override public void update(Observable observable, Object o) {
 				// only remove the .blend since it's most important data
 				// and it's the only file we are sure will not be needed anymore
-				// scene_file.delete();
-				Utils.move(scene_file, configuration.getArchiveDir().getPath() + File.separator + ajob.getSceneMD5());
+				// it's a link of the view, the extracted scene keeps its own
+				Utils.moveToArchive(scene_file, configuration.getArchiveDir().getPath() + File.separator + ajob.getSceneMD5(), configuration.getArchiveMaxAge() > 0);
 
 			}
 		};
@@ -828,7 +968,8 @@ import okhttp3.HttpUrl;
 			this.log.error("Client::work problem with runRenderer (ret " + err + ")");
 			if (err == Error.Type.RENDERER_CRASHED_PYTHON_ERROR) {
 				this.log.error("Client::work failed with python error, cleaning directory in hope to recover");
-				this.configuration.cleanWorkingDirectory();
+				this.cleanWorkingDirectory(ajob);
+				this.resetRenderer(ajob);
 			}
 			return err;
 		}
@@ -838,6 +979,39 @@ import okhttp3.HttpUrl;
 		return Error.Type.OK;
 	}
 	
+	/**
+	 * Clean the working directory of a job in hope to recover from an error. With several render slots, the archives and the renderers are used by the
+	 * other slots, they are only checked again at the next start.
+	 */
+	private void cleanWorkingDirectory(Job ajob) {
+		Configuration config = ajob.getConfiguration();
+		if (config == this.configuration) {
+			config.cleanWorkingDirectory();
+		}
+		else {
+			config.cleanDirectory(config.getWorkingDirectory());
+		}
+	}
+	
+	/**
+	 * The extracted renderer is kept by the cleanup of the working directory: it is removed so the next job extracts it again, unless another job uses
+	 * it, then it will only be checked against its archive on its next use
+	 */
+	private void resetRenderer(Job ajob) {
+		String md5 = ajob.getRendererMD5();
+		synchronized (RendererCache.class) {
+			List<Job> jobs = this.getRenderingJobs();
+			jobs.add(this.prefetchedJob);
+			jobs.add(this.prefetchingJob);
+			if (jobs.stream().anyMatch(job -> job != null && job != ajob && md5.equals(job.getRendererMD5()))) {
+				this.configuration.getRendererCache().invalidate(md5);
+			}
+			else {
+				this.configuration.getRendererCache().remove(md5);
+			}
+		}
+	}
+	
 	protected Error.Type downloadSceneFile(Job ajob_) throws FermeException {
 		return this.downloadFile(ajob_, ajob_.getRequiredSceneArchivePath(), ajob_.getSceneMD5(),
 				String.format(LOCALE, "%s?type=job&job=%s", this.server.getPage("download-archive"), ajob_.getId()), "project");
@@ -848,97 +1022,139 @@ import okhttp3.HttpUrl;
 				String.format(LOCALE, "%s?type=binary&job=%s", this.server.getPage("download-archive"), ajob.getId()), "renderer");
 	}
 	
+	/**
+	 * Free the space an archive of the job needs before its download, the archives of the jobs rendering or being prepared are kept
+	 *
+	 * @param size bytes to download
+	 * @param speed of the downloads in bytes/s, 0 if unknown
+	 * @return false if the disk does not have enough space left
+	 */
+	public boolean reserveCacheSpace(Job ajob, File destination, long size, long speed) {
+		Set<String> inUse = new HashSet<>();
+		List<Job> jobs = this.getRenderingJobs();
+		jobs.add(ajob);
+		jobs.add(this.prefetchedJob);
+		jobs.add(this.prefetchingJob);
+		for (Job job : jobs) {
+			if (job != null) {
+				inUse.add(job.getRendererMD5());
+				inUse.add(job.getSceneMD5());
+			}
+		}
+		return this.cacheQuota.reserve(destination, size, inUse, speed);
+	}
+	
 	private Error.Type downloadFile(Job ajob, String local_path, String md5_server, String url, String download_type) throws FermeException {
-		File local_path_file = new File(local_path);
-		String update_ui = "Downloading " + download_type;
+		// if the binary or scene already exists in the cache
+		if (new File(local_path).exists()) {
+			this.preparationStatus(ajob, "Reusing cached " + download_type);
+			return Type.OK;
+		}
 		
-		int remaining = 1800000; // 30 minutes max timeout
+		if (configuration.getSharedDownloadsDirectory() == null) {
+			return this.downloadArchive(ajob, local_path, md5_server, url, download_type);
+		}
 		
+		// only one of the clients using the shared downloads directory downloads the archive, the others wait until it appears. If the owner of the
+		// download dies, its lock is released and a waiting client continues the download.
+		SharedDownloadLock sharedLock = new SharedDownloadLock(local_path, this.log);
 		try {
-			// If the client is using a shared cache then introduce some random delay to minimise race conditions on the partial file creation on multiple
-			// instances of a client (when started with a script or rendering a recently downloaded scene)
-			if (configuration.getSharedDownloadsDirectory() != null) {
-				Thread.sleep((new Random().nextInt(9) + 1) * 1000);
-			}
-			
-			// For a maximum of 30 minutes
-			do {
-				// if the binary or scene already exists in the cache
-				if (local_path_file.exists()) {
-					this.gui.status("Reusing cached " + download_type);
-					return Type.OK;
+			SharedDownloadLock.Result result = sharedLock.acquire(new SharedDownloadLock.StatusListener() {
+				@Override public void waiting(String owner) {
+					preparationStatus(ajob, String.format("Another client is downloading the %s (%s)", download_type, owner));
 				}
-				// if the binary or scene is being downloaded by another client
-				else if (new File(local_path + ".partial").exists()) {
-					// Wait and check every second for file download completion but only update the GUI every 10 seconds to minimise CPU load
-					if (remaining % 10000 == 0) {
-						this.gui.status(String.format("Another client is downloading the %s. Cancel in %dmin %ds",
-							download_type,
-							TimeUnit.MILLISECONDS.toMinutes(remaining),
-							TimeUnit.MILLISECONDS.toSeconds(remaining) - TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(remaining))
-						));
-					}
-				}
-				else {
-					// The file doesn't yet existing not is being downloaded by another client, so immediately create the file with zero bytes to allow early
-					// detection by other concurrent clients and start downloading process
-					try {
-						File file = new File(local_path + ".partial");
-						file.createNewFile();
-						file.deleteOnExit();    // if the client crashes, the temporary file will be removed
-					} catch (IOException e) {
-						StringWriter sw = new StringWriter();
-						e.printStackTrace(new PrintWriter(sw));
-						this.log.error("Client::DownloadFile Unable to create .partial temp file for binary/scene " + local_path);
-						this.log.error("Client::DownloadFile Exception " + e + " stacktrace " + sw.toString());
-					}
-					
+			}, SharedDownloadLock.DEFAULT_TIMEOUT, () -> this.running);
+			switch (result) {
+				case AVAILABLE:
+					this.preparationStatus(ajob, "Reusing cached " + download_type);
+					return Type.OK;
+				case STOPPED:
+					return Type.DOWNLOAD_FILE;
+				case TIMEOUT:
+					this.log.debug("Client::downloadFile another client has been downloading " + local_path + " for too long, downloading it now");
+					return this.downloadOwnCopy(ajob, local_path, md5_server, url, download_type);
+				default:
 					break;
-				}
-				
-				// Reduce 1 second the waiting time
-				Thread.sleep(1000);
-				remaining -= 1000;
-			} while (remaining > 0);
+			}
+		}
+		catch (IOException e) {
+			// locks not supported by the file system, download without coordination
+			this.log.error("Client::downloadFile unable to lock the shared download of " + local_path + " (" + e + ")");
+			return this.downloadArchive(ajob, local_path, md5_server, url, download_type);
 		}
 		catch (InterruptedException e) {
 			log.debug("Error in the thread wait. Exception " + e.getMessage());
+			return Type.DOWNLOAD_FILE;
+		}
+		
+		Error.Type ret = Type.DOWNLOAD_FILE;
+		try {
+			ret = this.downloadArchive(ajob, local_path, md5_server, url, download_type);
 		}
 		finally {
-			// If we have reached the timeout (30 minutes trying to download the client) delete the partial downloaded copy and try to download again
-			if (remaining <= 0) {
-				log.debug("ERROR while waiting for download to finish in another client. Deleting the partial file and downloading a fresh copy now!.");
-				new File(local_path + ".partial").delete();
-			}
+			sharedLock.release(ret == Type.OK);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Download the archive without its lock, next to the .partial file of the client still owning it, and move it in place once verified
+	 */
+	private Error.Type downloadOwnCopy(Job ajob, String local_path, String md5_server, String url, String download_type) throws FermeException {
+		File own_copy = new File(local_path + "." + ProcessHandle.current().pid());
+		Error.Type ret = this.downloadArchive(ajob, own_copy.getAbsolutePath(), md5_server, url, download_type);
+		if (ret != Type.OK) {
+			return ret;
 		}
 		
-		this.gui.status(String.format("Downloading %s", download_type));
+		File local_path_file = new File(local_path);
+		try {
+			Files.move(own_copy.toPath(), local_path_file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.configuration.getChecksumIndex().put(local_path_file, md5_server); // verified by downloadArchive
+		}
+		catch (IOException e) {
+			this.log.error("Client::downloadOwnCopy unable to move " + own_copy.getAbsolutePath() + " to " + local_path + " (" + e + ")");
+			ret = Type.DOWNLOAD_FILE;
+		}
+		own_copy.delete();
+		this.configuration.getChecksumIndex().remove(own_copy);
+		return ret;
+	}
+	
+	private Error.Type downloadArchive(Job ajob, String local_path, String md5_server, String url, String download_type) throws FermeException {
+		File local_path_file = new File(local_path);
+		String update_ui = "Downloading " + download_type;
+		
+		this.preparationStatus(ajob, String.format("Downloading %s", download_type));
 		
-		// must download the archive
-		Error.Type ret = this.server.HTTPGetFile(url, local_path, this.gui, update_ui);
+		// must download the archive, a prefetch runs in the background and does not show its progress
+		Gui download_gui = ajob == this.prefetchingJob ? null : ajob.getGui();
+		Error.Type ret = this.server.HTTPGetFile(url, local_path, md5_server, ajob, download_gui, update_ui);
 		
 		if (ret == Type.RENDERER_KILLED_BY_SERVER || ret == Type.RENDERER_KILLED_BY_USER_OVER_TIME || ret == Type.RENDERER_KILLED_BY_USER) {
 			return ret;
 		}
 		
-		// Try to check the download file even if a download error has occurred (MD5 file check will delete the file if partially downloaded)
+		// Try to check the download file even if a download error has occurred (an interrupted download stays in the .partial file and is resumed by the
+		// next attempt)
 		boolean md5_check = this.checkFile(ajob, local_path, md5_server);
 		int attempts = 1;
 		
 		while ((ret != Error.Type.OK || md5_check == false) && attempts < this.maxDownloadFileAttempts) {
 			if (ret != Error.Type.OK) {
-				this.gui.error(String.format("Unable to download %s (error %s). Retrying now", download_type, ret));
+				this.preparationError(ajob, String.format("Unable to download %s (error %s). Retrying now", download_type, ret));
 				this.log.debug("Client::downloadFile problem with Server.HTTPGetFile (return: " + ret + ") removing local file (path: " + local_path + ")");
 			}
 			else if (md5_check == false) {
-				this.gui.error(String.format("Verification of downloaded %s has failed. Retrying now", download_type));
+				this.preparationError(ajob, String.format("Verification of downloaded %s has failed. Retrying now", download_type));
 				this.log.debug("Client::downloadFile problem with Client::checkFile mismatch on md5, removing local file (path: " + local_path + ")");
 			}
 			local_path_file.delete();
+			this.configuration.getChecksumIndex().remove(local_path_file);
 			
 			this.log.debug("Client::downloadFile failed, let's try again (" + (attempts + 1) + "/" + this.maxDownloadFileAttempts + ") ...");
 			
-			ret = this.server.HTTPGetFile(url, local_path, this.gui, update_ui);
+			ret = this.server.HTTPGetFile(url, local_path, md5_server, ajob, download_gui, update_ui);
 			
 			md5_check = this.checkFile(ajob, local_path, md5_server);
 			attempts++;
@@ -947,6 +1163,7 @@ import okhttp3.HttpUrl;
 				this.log.debug("Client::downloadFile failed after " + this.maxDownloadFileAttempts + " attempts, removing local file (path: " + local_path
 						+ "), stopping...");
 				local_path_file.delete();
+				this.configuration.getChecksumIndex().remove(local_path_file);
 				return Type.DOWNLOAD_FILE;
 			}
 		}
@@ -962,7 +1179,9 @@ import okhttp3.HttpUrl;
 			return false;
 		}
 		
-		String md5_local = Utils.md5(local_path);
+		// a new archive was hashed while downloaded (Server::HTTPGetFile records it in the index), otherwise it is hashed once and kept in the index, the
+		// next cache scans will not need to read it again
+		String md5_local = this.configuration.getChecksumIndex().md5(local_path_file);
 		
 		if (md5_local.equals(md5_server) == false) {
 			this.log.error(
@@ -975,7 +1194,8 @@ import okhttp3.HttpUrl;
 	}
 	
 	protected void removeSceneDirectory(Job ajob) {
-		//Utils.delete(new File(ajob.getSceneDirectory()));
+		// only the view of the render, the extracted scene is kept for the next frames of the project
+		Utils.delete(new File(ajob.getSceneDirectory()));
 	}
 	
 	protected int prepareWorkingDirectory(Job ajob) {
@@ -983,69 +1203,92 @@ import okhttp3.HttpUrl;
 		String bestRendererArchive = ajob.getRequiredRendererArchivePath();
 		String renderer_archive = ajob.getRendererArchivePath();
 		String renderer_path = ajob.getRendererDirectory();
-		File renderer_path_file = new File(renderer_path);
+		RendererCache renderers = this.configuration.getRendererCache();
 		
 		if (!new File(renderer_archive).exists()) {
-			this.gui.status("Copying renderer from shared downloads directory");
+			this.preparationStatus(ajob, "Copying renderer from shared downloads directory");
 			
-			copySharedArchive(bestRendererArchive, renderer_archive);
+			copySharedArchive(ajob, bestRendererArchive, renderer_archive);
 		}
 		
-		if (!renderer_path_file.exists()) {
-			// we create the directory
-			renderer_path_file.mkdir();
-			
-			this.gui.status("Extracting renderer");
-			
-			// unzip the archive
-			ret = Utils.unzipFileIntoDirectory(renderer_archive, renderer_path, null, log);
-			if (ret != 0) {
-				this.log.error(
-						"Client::prepareWorkingDirectory, error(1) with Utils.unzipFileIntoDirectory(" + renderer_archive + ", " + renderer_path + ") returned "
-								+ ret);
-				this.gui.error(String.format("Unable to extract the renderer (error %d)", ret));
-				return -1;
-			}
-			
-			try {
-				File f = new File(ajob.getRendererPath());
-				f.setExecutable(true);
-			}
-			catch (SecurityException e) {
+		// an extracted renderer is kept between restarts, its files are checked against the CRCs of its archive the first time it is used. The render slots
+		// share the renderers, a slot needing a renderer being extracted or checked by another one waits for it.
+		synchronized (RendererCache.class) {
+			if (renderers.isReady(ajob.getRendererMD5()) == false) {
+				this.preparationStatus(ajob, "Extracting renderer");
+				
+				// unzip the archive
+				ret = renderers.extract(renderer_archive, ajob.getRendererMD5());
+				if (ret != 0) {
+					this.log.error(
+							"Client::prepareWorkingDirectory, error(1) with RendererCache.extract(" + renderer_archive + ", " + renderer_path + ") returned "
+									+ ret);
+					this.preparationError(ajob, String.format("Unable to extract the renderer (error %d)", ret));
+					return -1;
+				}
+				
+				try {
+					File f = new File(ajob.getRendererPath());
+					f.setExecutable(true);
+				}
+				catch (SecurityException e) {
+				}
 			}
 		}
 		
 		String bestSceneArchive = ajob.getRequiredSceneArchivePath();
 		String scene_archive = ajob.getSceneArchivePath();
-		String scene_path = ajob.getSceneDirectory();
-		File scene_path_file = new File(scene_path);
+		SceneCache scenes = this.configuration.getSceneCache();
 		
 		if (!new File(scene_archive).exists()) {
-			this.gui.status("Copying scene from common directory");
-			copySharedArchive(bestSceneArchive, scene_archive);
+			this.preparationStatus(ajob, "Copying scene from common directory");
+			copySharedArchive(ajob, bestSceneArchive, scene_archive);
 		}
 		
-		if (!scene_path_file.exists()) {
-			// we create the directory
-			scene_path_file.mkdir();
-			
-			this.gui.status("Extracting project");
-			
-			// unzip the archive
-			ret = Utils.unzipFileIntoDirectory(scene_archive, scene_path, ajob.getPassword(), log);
-			if (ret != 0) {
-				this.log.error(
-						"Client::prepareWorkingDirectory, error(2) with Utils.unzipFileIntoDirectory(" + scene_archive + ", " + scene_path + ") returned "
-								+ ret);
-				this.gui.error(String.format("Unable to extract the scene (error %d)", ret));
-				return -2;
+		// the scene is extracted once for all the frames of the project, the render only gets a view of it (see prepareSceneView)
+		synchronized (SceneCache.class) {
+			if (scenes.isReady(ajob.getSceneMD5()) == false) {
+				this.preparationStatus(ajob, "Extracting project");
+				
+				// unzip the archive
+				ret = scenes.extract(scene_archive, ajob.getPassword(), ajob.getSceneMD5());
+				if (ret != 0) {
+					this.log.error("Client::prepareWorkingDirectory, error(2) with SceneCache.extract(" + scene_archive + ", " + ajob.getSceneMD5() + ") returned "
+							+ ret);
+					this.preparationError(ajob, String.format("Unable to extract the scene (error %d)", ret));
+					return -2;
+				}
 			}
 		}
 		
 		return 0;
 	}
+	
+	/**
+	 * Replace the scene directory of the job by a new view of the extracted scene. A render moves the .blend and modifies its directory, a view is
+	 * disposable, the next frame of the project gets its own.
+	 */
+	protected int prepareSceneView(Job ajob) {
+		SceneCache scenes = this.configuration.getSceneCache();
+		synchronized (SceneCache.class) {
+			// a file modified in place by a previous render is modified in the extracted scene too
+			if (scenes.verify(ajob.getSceneMD5()) == false) {
+				this.preparationStatus(ajob, "Extracting project");
+				
+				int ret = scenes.extract(ajob.getSceneArchivePath(), ajob.getPassword(), ajob.getSceneMD5());
+				if (ret != 0) {
+					this.log.error("Client::prepareSceneView, error with SceneCache.extract(" + ajob.getSceneArchivePath() + ", " + ajob.getSceneMD5()
+							+ ") returned " + ret);
+					this.preparationError(ajob, String.format("Unable to extract the scene (error %d)", ret));
+					return -1;
+				}
+			}
+			
+			return scenes.createView(ajob.getSceneMD5(), new File(ajob.getSceneDirectory()));
+		}
+	}
 
-	private void copySharedArchive(String existingArchive, String targetArchive) {
+	private void copySharedArchive(Job ajob, String existingArchive, String targetArchive) {
 		Path existingArchivePath = Paths.get(existingArchive);
 		Path targetArchivePath = Paths.get(targetArchive);
 		try {
@@ -1061,25 +1304,20 @@ import okhttp3.HttpUrl;
 				log.debug("Failed to create hardlink, falling back to copying file to " + targetArchivePath);
 				Files.copy(existingArchivePath, targetArchivePath, StandardCopyOption.REPLACE_EXISTING);
 			}
+			this.configuration.getChecksumIndex().copy(existingArchivePath.toFile(), targetArchivePath.toFile());
 		}
 		catch (IOException e) {
-			this.gui.error("Error while copying " + existingArchive + " from shared downloads directory to working dir");
+			this.preparationError(ajob, "Error while copying " + existingArchive + " from shared downloads directory to working dir");
 		}
 	}
 
+	/**
+	 * Upload a frame, with retries. The frames rendered in the background are uploaded by the UploadQueue instead.
+	 */
 	protected Error.Type confirmJob(Job ajob, int checkpoint) {
-		String url_real = String.format(LOCALE, "%s&rendertime=%d&memoryused=%s", ajob.getValidationUrl(), ajob.getProcessRender().getRenderDuration(),
-				ajob.getProcessRender().getPeakMemoryUsed());
-		this.log.debug(checkpoint, "Client::confirmeJob url " + url_real);
-		this.log.debug(checkpoint, "path frame " + ajob.getOutputImagePath());
-		
-		this.isValidatingJob = true;
-		int max_try = 3;
-		int timeToSleep = 22000;
-		ServerCode ret = ServerCode.UNKNOWN;
+		long timeToSleep = UploadQueue.RETRY_DELAY;
 		Type confirmJobReturnCode = Error.Type.OK;
-		retryLoop:
-		for (int nb_try = 0; nb_try < max_try; nb_try++) {
+		for (int nb_try = 0; nb_try < UploadQueue.MAX_TRIES; nb_try++) {
 			if (nb_try >= 1) {
 				// sleep before retrying
 				this.log.debug(checkpoint, "Sleep for " + timeToSleep / 1000 + "s before trying to re-upload the frame");
@@ -1091,79 +1329,258 @@ import okhttp3.HttpUrl;
 				}
 				timeToSleep *= 2;    // exponential backoff
 			}
-
-			ret = this.server.HTTPSendFile(url_real, ajob.getOutputImagePath(), checkpoint, this.gui);
-			switch (ret) {
-				case OK:
-					// no issue, exit the loop
-					break retryLoop;
-				
-				case JOB_VALIDATION_ERROR_SESSION_DISABLED:
-				case JOB_VALIDATION_ERROR_BROKEN_MACHINE:
-					confirmJobReturnCode = Error.Type.SESSION_DISABLED;
-					break retryLoop;
-				
-				case JOB_VALIDATION_ERROR_IMAGE_WRONG_DIMENSION:
-					confirmJobReturnCode = Error.Type.IMAGE_WRONG_DIMENSION;
-					break retryLoop;
-					
-				case JOB_VALIDATION_ERROR_MISSING_PARAMETER:
-					// no point to retry the request
-					confirmJobReturnCode = Error.Type.UNKNOWN;
-					break retryLoop;
-					
-				case JOB_VALIDATION_IMAGE_TOO_LARGE:
-					// the client cannot recover from this error (it's server side config) so exit the retry loop
-					confirmJobReturnCode = Type.IMAGE_TOO_LARGE;
-					break retryLoop;
-					
-				case SERVER_CONNECTION_FAILED:
-					confirmJobReturnCode = Type.NETWORK_ISSUE;
-					break;
-				
-				case ERROR_BAD_RESPONSE:
-					// set the error and retry on next loop
-					confirmJobReturnCode = Type.ERROR_BAD_UPLOAD_RESPONSE;
-					break;
-					
-				default:
-					// do nothing, try to do a request on the next loop
-					break;
+			
+			ServerCode ret = this.uploadFrame(ajob, checkpoint);
+			confirmJobReturnCode = uploadError(ret, confirmJobReturnCode);
+			if (isUploadOver(ret)) {
+				break;
 			}
 		}
 		
-		this.isValidatingJob = false;
-		this.previousJob = ajob;
+		this.endOfUpload(ajob, confirmJobReturnCode);
+		return confirmJobReturnCode;
+	}
+	
+	/**
+	 * Send the frame of a job to the server, a single try
+	 */
+	protected ServerCode uploadFrame(Job ajob, int checkpoint) {
+		String url_real = String.format(LOCALE, "%s&rendertime=%d&memoryused=%s", ajob.getValidationUrl(), ajob.getProcessRender().getRenderDuration(),
+				ajob.getProcessRender().getPeakMemoryUsed());
+		this.log.debug(checkpoint, "Client::confirmeJob url " + url_real);
+		this.log.debug(checkpoint, "path frame " + ajob.getOutputImagePath());
 		
-		//count frames if they are not test frames and got validated correctly
-		if (confirmJobReturnCode == Error.Type.OK && Integer.parseInt(ajob.getId()) >= MIN_JOB_ID) {
-			gui.AddFrameRendered();
+		return this.server.HTTPSendFile(url_real, ajob.getOutputImagePath(), checkpoint, this.gui);
+	}
+	
+	/**
+	 * @param previous the error of the previous tries of the upload
+	 * @return the error of the upload after a try
+	 */
+	protected static Type uploadError(ServerCode ret, Type previous) {
+		switch (ret) {
+			case OK:
+				return Error.Type.OK;
+			
+			case JOB_VALIDATION_ERROR_SESSION_DISABLED:
+			case JOB_VALIDATION_ERROR_BROKEN_MACHINE:
+				return Error.Type.SESSION_DISABLED;
+			
+			case JOB_VALIDATION_ERROR_IMAGE_WRONG_DIMENSION:
+				return Error.Type.IMAGE_WRONG_DIMENSION;
+			
+			case JOB_VALIDATION_ERROR_MISSING_PARAMETER:
+				return Error.Type.UNKNOWN;
+			
+			case JOB_VALIDATION_IMAGE_TOO_LARGE:
+				return Type.IMAGE_TOO_LARGE;
+			
+			case SERVER_CONNECTION_FAILED:
+				return Type.NETWORK_ISSUE;
+			
+			case ERROR_BAD_RESPONSE:
+				return Type.ERROR_BAD_UPLOAD_RESPONSE;
+			
+			default:
+				return previous;
+		}
+	}
+	
+	/**
+	 * @return true if the upload should not be tried again: it worked, or the client cannot recover from the error
+	 */
+	protected static boolean isUploadOver(ServerCode ret) {
+		switch (ret) {
+			case OK:
+			case JOB_VALIDATION_ERROR_SESSION_DISABLED:
+			case JOB_VALIDATION_ERROR_BROKEN_MACHINE:
+			case JOB_VALIDATION_ERROR_IMAGE_WRONG_DIMENSION:
+			case JOB_VALIDATION_ERROR_MISSING_PARAMETER: // no point to retry the request
+			case JOB_VALIDATION_IMAGE_TOO_LARGE: // it's server side config
+				return true;
+			
+			default:
+				return false;
+		}
+	}
+	
+	/**
+	 * Once the frame of a job is uploaded, or will not be
+	 */
+	protected void endOfUpload(Job ajob, Type confirmJobReturnCode) {
+		// called by each upload worker
+		synchronized (this) {
+			this.previousJob = ajob;
+			
+			//count frames if they are not test frames and got validated correctly
+			if (confirmJobReturnCode == Error.Type.OK && Integer.parseInt(ajob.getId()) >= MIN_JOB_ID) {
+				gui.AddFrameRendered();
+			}
 		}
 		
 		// we can remove the frame file
 		File frame = new File(ajob.getOutputImagePath());
 		// frame.delete();
-		Utils.move(frame, configuration.getArchiveDir().getPath() + File.separator + ajob.getSceneMD5());
+		Utils.moveToArchive(frame, configuration.getArchiveDir().getPath() + File.separator + ajob.getSceneMD5(), configuration.getArchiveMaxAge() > 0);
 		ajob.setOutputImagePath(null);
+	}
+	
+	/**
+	 * Show the progress of the preparation of a job, the preparation of a prefetched job only goes to the log since the gui displays the current render
+	 */
+	private void preparationStatus(Job ajob, String status) {
+		if (ajob != null && ajob == this.prefetchingJob) {
+			this.log.debug("Client::prefetch " + status);
+		}
+		else {
+			(ajob != null ? ajob.getGui() : this.gui).status(status);
+		}
+	}
+	
+	private void preparationError(Job ajob, String error) {
+		if (ajob != null && ajob == this.prefetchingJob) {
+			this.log.error("Client::prefetch " + error);
+		}
+		else {
+			(ajob != null ? ajob.getGui() : this.gui).error(error);
+		}
+	}
+	
+	/**
+	 * Request the next job and prepare it (download, check and extract the archives) once the current render has reached the configured progress, so the
+	 * next render can start as soon as the current one exits.
+	 */
+	protected void prefetchLoop() {
+		Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+		OS.getOS().setThreadBackgroundPriority(); // low io priority, the archives are read and written while the current job renders
 		
-		return confirmJobReturnCode;
+		Job attempted = null; // only one prefetch per render, the server might have no job to give
+		while (this.running) {
+			try {
+				Thread.sleep(1000);
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			
+			Job current = this.getRenderingJob();
+			if (current == null || current == attempted || this.prefetchedJob != null || this.suspended || this.shuttingdown
+				|| this.errorCooldownEnd > new Date().getTime()) {
+				continue;
+			}
+			if (current.getRenderingProgress() < this.configuration.getPrefetchProgress() || current.isSynchronousUpload() || this.canPrefetch() == false) {
+				continue;
+			}
+			if (this.nextJobRequest() != null) {
+				continue; // outside of the hours the user allowed for requesting jobs
+			}
+			attempted = current;
+			
+			synchronized (this) {
+				this.prefetching = true;
+			}
+			Job next = null;
+			try {
+				this.log.debug("Client::prefetchLoop requesting the next job (current job " + current.getId() + " at " + current.getRenderingProgress() + "%)");
+				next = this.server.requestJob();
+				if (next != null && this.prefetch(next) == false) {
+					// give it back to the main loop, it will try again to download the archives and report the error to the server if it fails again
+					this.log.debug("Client::prefetchLoop failed to prepare job " + next.getId());
+				}
+			}
+			catch (FermeException e) {
+				// the main loop will do the request again and handle the error
+				this.log.debug("Client::prefetchLoop exception requestJob " + e);
+				next = null;
+			}
+			catch (Exception e) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				this.log.error("Client::prefetchLoop exception " + e + " stacktrace: " + sw.toString());
+			}
+			finally {
+				synchronized (this) {
+					this.prefetchingJob = null;
+					this.prefetchedJob = next;
+					this.prefetching = false;
+					notifyAll();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return false if the archives of the job could not be downloaded or extracted (the renderer and scene caches only keep completely extracted trees).
+	 * The view of the scene is only created when the job starts, the current render may be using the one of the same project.
+	 */
+	private boolean prefetch(Job ajob) throws FermeException {
+		this.prefetchingJob = ajob;
+		this.log.debug("Client::prefetch preparing job " + ajob.getId() + " frame " + ajob.getFrameNumber());
+		this.preparations.incrementAndGet();
+		try {
+			return this.downloadExecutable(ajob) == Error.Type.OK && this.downloadSceneFile(ajob) == Error.Type.OK && this.prepareWorkingDirectory(ajob) == 0;
+		}
+		finally {
+			this.preparations.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * @return the job prepared while the previous one was rendering, waiting for its preparation if it's not done yet. Null if there is none.
+	 */
+	private synchronized Job takePrefetchedJob() throws InterruptedException {
+		if (this.prefetching) {
+			this.gui.status("Downloading the next job");
+		}
+		while (this.prefetching) {
+			wait();
+		}
+		Job job = this.prefetchedJob;
+		this.prefetchedJob = null;
+		return job;
+	}
+	
+	/**
+	 * The server allows a limited number of jobs per session: the one rendering, the frames not yet uploaded and the prefetched one all count
+	 */
+	private boolean canPrefetch() {
+		int concurrent_job = this.uploadQueue.size() + 2; // the current render and the next one
+		return concurrent_job <= this.configuration.getMaxUploadingJob();
 	}
 	
 	protected boolean shouldWaitBeforeRender() {
-		int concurrent_job = this.jobsToValidate.size();
-		if (this.isValidatingJob) {
-			concurrent_job++;
+		return this.getConcurrentJobs() >= this.configuration.getMaxUploadingJob();
+	}
+	
+	/**
+	 * Take one of the jobs the server allows to the session for a render slot, it's kept until the slot is done with its job
+	 *
+	 * @return false if the session has no job left, the slot has to wait for an upload or for the end of the render of another slot
+	 */
+	private synchronized boolean reserveSlot(RenderSlot slot) {
+		if (slot.isReserved() == false) {
+			if (this.getConcurrentJobs() >= this.configuration.getMaxUploadingJob()) {
+				return false;
+			}
+			slot.setReserved(true);
 		}
-		return (concurrent_job >= this.configuration.getMaxUploadingJob());
+		return true;
+	}
+	
+	private synchronized void releaseSlot(RenderSlot slot) {
+		slot.setReserved(false);
 	}
 	
-	/****************
-	 * Inner class that will hold the queued jobs. The constructor accepts two parameters:
-	 * @int checkpoint - the checkpoint associated with the job (to add any additional log to the render output)
-	 * @Job job - the job to be validated
+	/**
+	 * @return the jobs of the session: the frames waiting for their upload or being uploaded, and the jobs requested or rendered by the render slots
 	 */
-	@AllArgsConstructor class QueuedJob {
-		final private int checkpoint;
-		final private Job job;
+	private int getConcurrentJobs() {
+		int concurrent_job = this.uploadQueue.size();
+		for (RenderSlot slot : this.renderSlots) {
+			if (slot.isReserved()) {
+				concurrent_job++;
+			}
+		}
+		return concurrent_job;
 	}
 }
@@ -28,8 +28,10 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import com.sheepit.client.hardware.cpu.CPU;
 import com.sheepit.client.hardware.gpu.GPUDevice;
@@ -64,6 +66,7 @@ import lombok.Data;
 	private int priority;
 	private ComputeType computeMethod;
 	private GPUDevice GPUDevice;
+	private List<GPUDevice> additionalGPUDevices; // with several GPUs, the devices after the first one (GPUDevice), each renders in its own slot
 	private boolean detectGPUs;
 	private boolean printLog;
 	private List<Pair<Calendar, Calendar>> requestTime;
@@ -76,6 +79,17 @@ import lombok.Data;
 	private String UIType;
 	private String hostname;
 	private String theme;
+	private int prefetchProgress; // render progress (in %) at which the next job is requested and prepared in the background, -1 to disable
+	private boolean useCGroup; // run each render in its own cgroup, with the memory and cpu limits enforced by the kernel (Linux only)
+	private String cpuPlacement; // cpus the renderer is pinned to: null (no pinning), "auto", "node:<n>" or a list like "0-7,16" (Linux only)
+	private int renderSlots; // number of renders running at the same time, the cores are shared between them
+	private boolean useWarmRenderer; // keep the renderer running between the frames of a project
+	private long cacheQuota; // in bytes, for the archives and the extracted renderers and scenes, 0 for no quota (see CacheQuota)
+	private long archiveMaxSize; // retention of the render archive (see ArchiveCompactor), in bytes, 0 for no limit
+	private int archiveMaxAge; // in days, 0 for no limit
+	private int archiveMaxFilesPerProject; // 0 for no limit
+	private ChecksumIndex checksumIndex; // md5 of the cached archives, see getChecksumIndex()
+	private RendererCache rendererCache; // see getRendererCache()
 	
 	public Configuration(File cache_dir_, String login_, String password_) {
 		this.configFilePath = null;
@@ -91,6 +105,7 @@ import lombok.Data;
 		this.priority = 19; // default lowest
 		this.computeMethod = null;
 		this.GPUDevice = null;
+		this.additionalGPUDevices = new LinkedList<>();
 		this.userHasSpecifiedACacheDir = false;
 		this.detectGPUs = true;
 		this.workingDirectory = null;
@@ -108,13 +123,27 @@ import lombok.Data;
 		this.headless = java.awt.GraphicsEnvironment.isHeadless();
 		this.UIType = null;
 		this.theme = null;
+		this.prefetchProgress = -1;
+		this.useCGroup = false;
+		this.cpuPlacement = null;
+		this.renderSlots = 1;
+		this.useWarmRenderer = false;
+		this.cacheQuota = 0;
+		this.archiveMaxSize = 0; // the render archive keeps everything unless a limit is set
+		this.archiveMaxAge = 0;
+		this.archiveMaxFilesPerProject = 0;
+		this.checksumIndex = null;
+		this.rendererCache = null;
 	}
 	
 	public Configuration(Configuration config) {
 		this(config.configFilePath, config.workingDirectory, config.sharedDownloadsDirectory, config.storageDirectory, config.archiveDirectory, config.userHasSpecifiedACacheDir,
 			config.static_exeDirName, config.login, config.password, config.proxy, config.maxUploadingJob, config.nbCores, config.maxAllowedMemory, config.maxRenderTime,
-			config.priority, config.computeMethod, config.GPUDevice, config.detectGPUs, config.printLog, config.requestTime, config.shutdownTime,
-			config.shutdownMode, config.extras, config.autoSignIn, config.useSysTray, config.headless, config.UIType, config.hostname, config.theme);
+			config.priority, config.computeMethod, config.GPUDevice, config.additionalGPUDevices, config.detectGPUs, config.printLog, config.requestTime, config.shutdownTime,
+			config.shutdownMode, config.extras, config.autoSignIn, config.useSysTray, config.headless, config.UIType, config.hostname, config.theme,
+			config.prefetchProgress, config.useCGroup, config.cpuPlacement, config.renderSlots, config.useWarmRenderer,
+			config.cacheQuota, config.archiveMaxSize, config.archiveMaxAge, config.archiveMaxFilesPerProject, config.checksumIndex,
+			config.rendererCache);
 	}
 	
 	public String toString() {
@@ -136,6 +165,7 @@ import lombok.Data;
 				c + "priority:                  " + priority + n +
 				c + "computeMethod:             " + computeMethod + n +
 				c + "GPUDevice:                 " + GPUDevice + n +
+				c + "additionalGPUDevices:      " + additionalGPUDevices + n +
 				c + "detectGPUs:                " + detectGPUs + n +
 				c + "printLog:                  " + printLog + n +
 				c + "requestTime:               " + requestTime + n +
@@ -147,7 +177,16 @@ import lombok.Data;
 				c + "headless:                  " + headless + n +
 				c + "UIType:                    " + UIType + n +
 				c + "hostname:                  " + hostname + n +
-				c + "theme:                     " + theme;
+				c + "theme:                     " + theme + n +
+				c + "prefetchProgress:          " + prefetchProgress + n +
+				c + "useCGroup:                 " + useCGroup + n +
+				c + "cpuPlacement:              " + cpuPlacement + n +
+				c + "renderSlots:               " + renderSlots + n +
+				c + "useWarmRenderer:           " + useWarmRenderer + n +
+				c + "cacheQuota:                " + cacheQuota + n +
+				c + "archiveMaxSize:            " + archiveMaxSize + n +
+				c + "archiveMaxAge:             " + archiveMaxAge + n +
+				c + "archiveMaxFilesPerProject: " + archiveMaxFilesPerProject;
 	}
 	
 	public void setUsePriority(int priority) {
@@ -228,6 +267,13 @@ import lombok.Data;
 		return this.archiveDirectory;
 	}
 	
+	/**
+	 * Next to the render archive, outside of the working directory which is cleaned on start and stop
+	 */
+	public File getUploadJournalDir() {
+		return this.archiveDirectory != null ? new File(this.archiveDirectory.getParentFile(), UploadJournal.DIRECTORY) : null;
+	}
+	
 	public File getCacheDirForSettings() {
 		if (this.userHasSpecifiedACacheDir == false) {
 			return null;
@@ -247,9 +293,54 @@ import lombok.Data;
 		}
 	}
 	
+	/**
+	 * The index is stored in the storage directory so it survives restarts, it is re-opened if the storage directory changes.
+	 */
+	public synchronized ChecksumIndex getChecksumIndex() {
+		File storage = this.getStorageDir();
+		File indexFile = storage != null ? new File(storage, ChecksumIndex.FILENAME) : null;
+		if (this.checksumIndex == null || (indexFile != null && indexFile.equals(this.checksumIndex.getIndexFile()) == false)) {
+			this.checksumIndex = new ChecksumIndex(indexFile, Log.getInstance(this));
+		}
+		return this.checksumIndex;
+	}
+	
+	/**
+	 * The extracted renderers are kept in the storage directory, so a restart does not extract them again. The cache remembers the renderers already
+	 * checked, it is re-created if the storage directory changes.
+	 */
+	public synchronized RendererCache getRendererCache() {
+		File directory = new File(this.getStorageDir(), RendererCache.DIRECTORY);
+		if (this.rendererCache == null || directory.equals(this.rendererCache.getDirectory()) == false) {
+			this.rendererCache = new RendererCache(directory, Log.getInstance(this));
+		}
+		return this.rendererCache;
+	}
+	
+	/**
+	 * The extracted scenes are kept in the working directory, they are removed with it on start and stop
+	 */
+	public SceneCache getSceneCache() {
+		return new SceneCache(new File(this.getWorkingDirectory(), SceneCache.DIRECTORY), Log.getInstance(this));
+	}
+	
 	public void cleanWorkingDirectory() {
 		this.cleanDirectory(this.workingDirectory);
 		this.cleanDirectory(this.storageDirectory);
+		
+		// the renderer archives have been checked, the extracted renderers whose archive is gone are removed
+		Set<String> archives = new HashSet<>();
+		for (File dir : new File[] { this.storageDirectory, this.sharedDownloadsDirectory }) {
+			File[] files = dir != null ? dir.listFiles() : null;
+			if (files != null) {
+				for (File file : files) {
+					if (file.isFile() && file.getName().endsWith(".zip")) {
+						archives.add(file.getName().substring(0, file.getName().length() - ".zip".length()));
+					}
+				}
+			}
+		}
+		this.getRendererCache().clean(archives);
 	}
 	
 	public boolean cleanDirectory(File dir) {
@@ -257,9 +348,15 @@ import lombok.Data;
 			return false;
 		}
 		
+		ChecksumIndex index = this.getChecksumIndex();
 		File[] files = dir.listFiles();
 		if (files != null) {
 			for (File file : files) {
+				if (file.getName().startsWith(ChecksumIndex.FILENAME) || PartialDownload.isResumable(file) || file.getName().equals(RendererCache.DIRECTORY)
+						|| file.getName().equals(Speedtest.CACHE_FILENAME) || file.getName().equals(CacheQuota.FILENAME)) {
+					continue;
+				}
+				
 				if (file.isDirectory()) {
 					Utils.delete(file);
 				}
@@ -269,13 +366,14 @@ import lombok.Data;
 						String name = file.getName().substring(0, file.getName().length() - 1 * extension.length());
 						if (extension.equals(".zip")) {
 							// check if the md5 of the file is ok
-							String md5_local = Utils.md5(file.getAbsolutePath());
+							String md5_local = index.md5(file);
 							
 							if (md5_local.equals(name) == false) {
 								file.delete();
+								index.remove(file);
 							}
 							
-							// TODO: remove old one
+							// the old ones are removed by CacheQuota
 						}
 						else {
 							file.delete();
@@ -287,6 +385,7 @@ import lombok.Data;
 				}
 			}
 		}
+		index.prune();
 		return true;
 	}
 	
@@ -321,14 +420,15 @@ import lombok.Data;
 			}
 		}
 		
+		ChecksumIndex index = this.getChecksumIndex();
 		for (File file : files) {
 			if (file.isFile()) {
 				try {
 					String extension = file.getName().substring(file.getName().lastIndexOf('.')).toLowerCase();
 					String name = file.getName().substring(0, file.getName().length() - 1 * extension.length());
 					if (extension.equals(".zip")) {
-						// check if the md5 of the file is ok
-						String md5_local = Utils.md5(file.getAbsolutePath());
+						// check if the md5 of the file is ok (only hashed if the file has changed since the last scan)
+						String md5_local = index.md5(file);
 						
 						if (md5_local.equals(name)) {
 							files_local.add(file);
@@ -339,6 +439,7 @@ import lombok.Data;
 				}
 			}
 		}
+		index.prune();
 		return files_local;
 	}
 	
@@ -0,0 +1,133 @@
+package com.sheepit.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/****************
+ * md5 of an archive computed while it is being downloaded, so the file does not have to be read again for the final check.
+ * The bytes have to be hashed in order: the ones received at the hashed position are hashed straight from the download buffer, a segment downloaded
+ * ahead is read back from the file (usually still in the page cache) once all the bytes before it have been hashed. One download thread at a time reads
+ * back the file, outside of the lock, so the other ones are not blocked on the disk: the lock is only held to update the digest.
+ */
+public class DownloadDigest {
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	
+	private final MessageDigest digest;
+	private final List<PartialDownload.Segment> segments; // null when the archive is received on a single stream
+	private final long size;
+	private long hashed;
+	private boolean catchingUp; // a thread is reading back the file, it hashes all the bytes written meanwhile
+	private ByteBuffer readBuffer; // only used by the thread catching up
+	
+	public DownloadDigest(List<PartialDownload.Segment> segments, long size) throws NoSuchAlgorithmException {
+		this.digest = MessageDigest.getInstance("MD5");
+		this.segments = segments;
+		this.size = size;
+		this.hashed = 0;
+		this.catchingUp = false;
+		this.readBuffer = null;
+	}
+	
+	/**
+	 * Bytes written in the file by a download thread, must be called after the progress of the segment has been updated
+	 *
+	 * @param channel channel of the partial file, to read back the bytes of the next segments. Can be null for a single stream.
+	 */
+	public void update(FileChannel channel, long position, byte[] buffer, int length) throws IOException {
+		synchronized (this) {
+			if (position == this.hashed && this.catchingUp == false) {
+				this.digest.update(buffer, 0, length);
+				this.hashed += length;
+			}
+		}
+		this.catchUp(channel);
+	}
+	
+	/**
+	 * Hash the bytes already written contiguously after the hashed position
+	 */
+	public void catchUp(FileChannel channel) throws IOException {
+		if (this.segments == null || channel == null) {
+			return;
+		}
+		
+		long position;
+		long available;
+		synchronized (this) {
+			if (this.catchingUp) {
+				return; // the bytes written by this thread will be hashed by the one catching up
+			}
+			available = this.getAvailable();
+			if (this.hashed >= available) {
+				return;
+			}
+			this.catchingUp = true;
+			position = this.hashed;
+		}
+		
+		try {
+			if (this.readBuffer == null) {
+				this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			}
+			while (true) {
+				this.readBuffer.clear();
+				this.readBuffer.limit((int) Math.min(READ_BUFFER_SIZE, available - position));
+				int len = channel.read(this.readBuffer, position);
+				if (len <= 0) {
+					return;
+				}
+				this.readBuffer.flip();
+				
+				synchronized (this) {
+					this.digest.update(this.readBuffer);
+					this.hashed += len;
+					position = this.hashed;
+					if (this.hashed >= available) {
+						// done once nothing more has been written, checked under the lock so the bytes of an update() skipped meanwhile are not missed
+						available = this.getAvailable();
+						if (this.hashed >= available) {
+							this.catchingUp = false;
+							return;
+						}
+					}
+				}
+			}
+		}
+		finally {
+			synchronized (this) {
+				this.catchingUp = false;
+			}
+		}
+	}
+	
+	/**
+	 * @return the md5 of the archive, null if some bytes have not been hashed (an interrupted download)
+	 */
+	public synchronized String getMd5() {
+		if (this.size != -1 && this.hashed != this.size) {
+			return null;
+		}
+		return Utils.convertBinaryToHex(this.digest.digest());
+	}
+	
+	/**
+	 * @return the end (exclusive) of the bytes written contiguously from the hashed position
+	 */
+	private long getAvailable() {
+		long available = this.hashed;
+		for (PartialDownload.Segment segment : this.segments) {
+			if (available > segment.end) {
+				continue;
+			}
+			available = Math.max(available, segment.getPosition());
+			if (available <= segment.end) {
+				break; // the segment holding the position is not complete yet
+			}
+		}
+		return available;
+	}
+}
@@ -0,0 +1,143 @@
+package com.sheepit.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+import com.sheepit.client.Error.ServerCode;
+
+/****************
+ * Error reports waiting to be sent to the server. The report (a header and the log of the checkpoint) is built when the error happens and kept gzipped in
+ * memory, then sent by a worker, so the render slot which met the error never waits for the server.
+ */
+public class ErrorReporter {
+	private static final int MAX_REPORTS = 20; // later reports are dropped while the server can not be reached
+	private static final int MAX_TRIES = 3;
+	private static final long RETRY_DELAY = 30000; // in ms, doubled after each failed try
+	
+	private final Server server;
+	private final Gui gui;
+	private final Log log;
+	private final BlockingQueue<Report> queue;
+	private int pending; // reports queued or being sent
+	
+	public ErrorReporter(Server server, Gui gui, Log log) {
+		this.server = server;
+		this.gui = gui;
+		this.log = log;
+		this.queue = new LinkedBlockingQueue<>(MAX_REPORTS);
+		this.pending = 0;
+	}
+	
+	public void start() {
+		Thread thread = new Thread(this::workerLoop, "Error reporter");
+		thread.setDaemon(true); // the reports left when the client exits are dropped, see flush()
+		thread.start();
+	}
+	
+	/**
+	 * @param report the gzipped report
+	 */
+	public synchronized void add(String url, byte[] report, int checkpoint) {
+		if (this.queue.offer(new Report(url, report, checkpoint))) {
+			this.pending++;
+		}
+		else {
+			this.log.error("ErrorReporter::add too many reports waiting, drop the one of " + url);
+		}
+	}
+	
+	/**
+	 * Wait until the reports are sent, at most timeout ms
+	 */
+	public synchronized void flush(long timeout) {
+		long end = System.currentTimeMillis() + timeout;
+		long left;
+		while (this.pending > 0 && (left = end - System.currentTimeMillis()) > 0) {
+			try {
+				this.wait(Math.min(left, 1000));
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+	
+	private void workerLoop() {
+		while (true) {
+			Report report;
+			try {
+				report = this.queue.take();
+			}
+			catch (InterruptedException e) {
+				this.log.error("ErrorReporter::workerLoop Exception " + e.getMessage());
+				return;
+			}
+			
+			try {
+				this.send(report);
+			}
+			finally {
+				synchronized (this) {
+					this.pending--;
+					this.notifyAll();
+				}
+			}
+		}
+	}
+	
+	private void send(Report report) {
+		File temp_file = null;
+		try {
+			// the server expects the report as a text file
+			temp_file = File.createTempFile("farm_", ".txt");
+			temp_file.deleteOnExit();
+			try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(report.content))) {
+				Files.copy(in, temp_file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			
+			long timeToSleep = RETRY_DELAY;
+			for (int nb_try = 0; nb_try < MAX_TRIES; nb_try++) {
+				if (nb_try >= 1) {
+					this.log.debug("ErrorReporter::send sleep for " + timeToSleep / 1000 + "s before trying to send the report again");
+					Thread.sleep(timeToSleep);
+					timeToSleep *= 2;
+				}
+				// only a failed connection is worth a retry, the server has received the report otherwise
+				if (this.server.HTTPSendFile(report.url, temp_file.getAbsolutePath(), report.checkpoint, this.gui) != ServerCode.SERVER_CONNECTION_FAILED) {
+					break;
+				}
+			}
+		}
+		catch (IOException | InterruptedException e) {
+			StringWriter sw = new StringWriter();
+			e.printStackTrace(new PrintWriter(sw));
+			this.log.debug("ErrorReporter::send Exception " + e + " stacktrace: " + sw.toString());
+		}
+		finally {
+			if (temp_file != null) {
+				temp_file.delete();
+			}
+		}
+	}
+	
+	private static class Report {
+		private final String url;
+		private final byte[] content;
+		private final int checkpoint;
+		
+		private Report(String url, byte[] content, int checkpoint) {
+			this.url = url;
+			this.content = content;
+			this.checkpoint = checkpoint;
+		}
+	}
+}
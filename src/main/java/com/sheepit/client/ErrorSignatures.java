@@ -0,0 +1,189 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/****************
+ * Table of the renderer error signatures (text found in a line of the renderer output => error), loaded from the resource file error_signatures.txt.
+ * All the signatures are compiled in a single Aho-Corasick automaton, a line is scanned once whatever the number of signatures.
+ */
+public class ErrorSignatures {
+	public static final String RESOURCE = "/error_signatures.txt";
+	
+	private static final int NONE = Integer.MAX_VALUE; // no signature, higher than any index of the table so Math.min() keeps the first signature
+	
+	private static ErrorSignatures instance = null;
+	
+	private final Error.Type[] types; // by signature, in the order of the table
+	private final int[] classes; // character => column of the transition table, 0 for a character not used by any signature
+	private final Map<Character, Integer> otherClasses; // same for the characters outside of ascii
+	private final int columns;
+	// one row of 1 + columns values per state: the first signature of the table found when reaching the state (NONE if there is none), then the next
+	// state for each column. A state is stored as the offset of its row.
+	private final int[] automaton;
+	private final int states;
+	
+	public ErrorSignatures(List<String> signatures, List<Error.Type> types) {
+		this.types = types.toArray(new Error.Type[0]);
+		this.classes = new int[128];
+		this.otherClasses = new HashMap<>();
+		
+		int nextClass = 1;
+		for (String signature : signatures) {
+			for (char c : signature.toCharArray()) {
+				if (this.classOf(c) == 0) {
+					if (c < 128) {
+						this.classes[c] = nextClass;
+					}
+					else {
+						this.otherClasses.put(c, nextClass);
+					}
+					nextClass++;
+				}
+			}
+		}
+		this.columns = nextClass;
+		
+		// trie of the signatures
+		List<int[]> trie = new ArrayList<>();
+		List<Integer> trieMatches = new ArrayList<>();
+		trie.add(new int[this.columns]);
+		trieMatches.add(NONE);
+		for (int i = 0; i < signatures.size(); i++) {
+			int state = 0;
+			for (char c : signatures.get(i).toCharArray()) {
+				int column = this.classOf(c);
+				if (trie.get(state)[column] == 0) {
+					trie.get(state)[column] = trie.size();
+					trie.add(new int[this.columns]);
+					trieMatches.add(NONE);
+				}
+				state = trie.get(state)[column];
+			}
+			trieMatches.set(state, Math.min(trieMatches.get(state), i));
+		}
+		
+		// breadth first: failure links, the output of a state includes the one of its failure state and the missing transitions are taken from the
+		// failure state, to get a full automaton (no failure link to follow while scanning)
+		this.states = trie.size();
+		int stride = this.columns + 1;
+		this.automaton = new int[this.states * stride];
+		int[] failure = new int[this.states];
+		for (int state = 0; state < this.states; state++) {
+			this.automaton[state * stride] = trieMatches.get(state);
+		}
+		
+		Queue<Integer> queue = new ArrayDeque<>();
+		for (int column = 0; column < this.columns; column++) {
+			int next = trie.get(0)[column];
+			this.automaton[1 + column] = next * stride;
+			if (next != 0) {
+				queue.add(next);
+			}
+		}
+		while (queue.isEmpty() == false) {
+			int state = queue.poll();
+			int row = state * stride;
+			int failureRow = failure[state] * stride;
+			this.automaton[row] = Math.min(this.automaton[row], this.automaton[failureRow]);
+			for (int column = 0; column < this.columns; column++) {
+				int next = trie.get(state)[column];
+				if (next != 0) {
+					failure[next] = this.automaton[failureRow + 1 + column] / stride;
+					this.automaton[row + 1 + column] = next * stride;
+					queue.add(next);
+				}
+				else {
+					this.automaton[row + 1 + column] = this.automaton[failureRow + 1 + column];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the table of the resource file, loaded once
+	 */
+	public static synchronized ErrorSignatures getInstance(Log log) {
+		if (instance == null) {
+			instance = load(ErrorSignatures.class.getResourceAsStream(RESOURCE), log);
+		}
+		return instance;
+	}
+	
+	/**
+	 * Read a table, one signature per line: the name of the Error.Type, a tab, then the text to find. Empty lines and lines starting with # are ignored.
+	 */
+	public static ErrorSignatures load(InputStream stream, Log log) {
+		List<String> signatures = new ArrayList<>();
+		List<Error.Type> types = new ArrayList<>();
+		if (stream == null) {
+			log.error("ErrorSignatures::load resource " + RESOURCE + " not found, the renderer errors will not be detected");
+			return new ErrorSignatures(signatures, types);
+		}
+		
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				int separator = line.indexOf('\t');
+				if (separator <= 0 || separator == line.length() - 1) {
+					log.error("ErrorSignatures::load invalid line '" + line + "'");
+					continue;
+				}
+				try {
+					types.add(Error.Type.valueOf(line.substring(0, separator)));
+					signatures.add(line.substring(separator + 1));
+				}
+				catch (IllegalArgumentException e) {
+					log.error("ErrorSignatures::load unknown error type in '" + line + "'");
+				}
+			}
+		}
+		catch (IOException e) {
+			log.error("ErrorSignatures::load failed to read " + RESOURCE + " (" + e + ")");
+		}
+		return new ErrorSignatures(signatures, types);
+	}
+	
+	/**
+	 * @return the error of the first signature of the table found in the line, Error.Type.OK if there is none
+	 */
+	public Error.Type detect(String line) {
+		int[] automaton = this.automaton;
+		int row = 0;
+		int found = NONE;
+		for (int i = 0; i < line.length(); i++) {
+			row = automaton[row + 1 + this.classOf(line.charAt(i))];
+			found = Math.min(found, automaton[row]);
+		}
+		return found == NONE ? Error.Type.OK : this.types[found];
+	}
+	
+	public int size() {
+		return this.types.length;
+	}
+	
+	@Override public String toString() {
+		return String.format("ErrorSignatures (%d signatures, %d states) %s", this.types.length, this.states, Arrays.toString(this.types));
+	}
+	
+	private int classOf(char c) {
+		if (c < 128) {
+			return this.classes[c];
+		}
+		Integer column = this.otherClasses.get(c);
+		return column != null ? column : 0;
+	}
+}
@@ -19,34 +19,98 @@
 
 package com.sheepit.client;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/****************
+ * The lines are formatted and stored in their checkpoint by a background thread, and printed by another one. The threads logging only add the message
+ * to a queue, they never wait for the console or for the storage of the checkpoints, and a slow console does not delay the checkpoints. When the
+ * writer can not keep up, the debug lines are dropped, when the console can not keep up the lines are only stored in the checkpoints.
+ */
 public class Log {
+	private static final int QUEUE_LIMIT = 10000; // pending lines above which the debug lines are dropped
+	private static final long FLUSH_TIMEOUT = 2000; // ms
+	
 	private static Log instance = null;
 	
-	private Map<Integer, ArrayList<String>> checkpoints = new HashMap<Integer, ArrayList<String>>();
-	private int lastCheckPoint;
-	private DateFormat dateFormat;
+	private Map<Integer, CheckPointLog> checkpoints = new ConcurrentHashMap<Integer, CheckPointLog>();
+	private volatile int lastCheckPoint;
 	
 	private boolean printStdOut;
 	
+	private final Queue<Record> queue;
+	private final AtomicLong submitted; // number of records added to the queue
+	private volatile long written; // number of records handled by the writer
+	private final AtomicLong dropped; // debug lines dropped since the last notice
+	private final Object flushLock;
+	private volatile long flushTarget; // lowest number of records a flush() is waiting for, Long.MAX_VALUE if none
+	private final Thread writer;
+	private volatile boolean writerWaiting;
+	private final BlockingQueue<String> console;
+	private long consoleDropped; // only used by the writer thread
+	
+	// only used by the writer thread
+	private DateFormat dateFormat;
+	private long lastSecond;
+	private String lastTimestamp;
+	
 	private Log(boolean print_) {
 		this.printStdOut = print_;
 		this.lastCheckPoint = 0;
-		this.checkpoints.put(this.lastCheckPoint, new ArrayList<String>());
+		this.checkpoints.put(this.lastCheckPoint, new CheckPointLog());
 		this.dateFormat = new SimpleDateFormat("dd-MM HH:mm:ss");
+		this.lastSecond = -1;
+		this.lastTimestamp = null;
+		
+		this.queue = new ConcurrentLinkedQueue<>();
+		this.submitted = new AtomicLong(0);
+		this.written = 0;
+		this.dropped = new AtomicLong(0);
+		this.flushLock = new Object();
+		this.flushTarget = Long.MAX_VALUE;
+		this.writerWaiting = false;
+		this.writer = new Thread(this::writeLoop, "Log writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+		
+		this.console = new LinkedBlockingQueue<>(QUEUE_LIMIT);
+		this.consoleDropped = 0;
+		if (this.printStdOut) {
+			Thread printer = new Thread(this::printLoop, "Log printer");
+			printer.setDaemon(true);
+			printer.start();
+		}
+		
+		// the pending lines are still printed when the client exits
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			this.flush();
+			long end = System.currentTimeMillis() + FLUSH_TIMEOUT;
+			while (this.console.isEmpty() == false && System.currentTimeMillis() < end) {
+				try {
+					Thread.sleep(10);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+			}
+		}));
 	}
 	
 	public void debug(String msg_) {
 		this.debug(-1, msg_);
 	}
-
+	
 	public void debug(int point_, String msg_) {
 		this.append(point_, "debug", msg_);
 	}
@@ -62,46 +126,155 @@ public class Log {
 	public void error(String msg_) {
 		this.error(-1, msg_);
 	}
-
+	
 	public void error(int point_, String msg_) {
 		this.append(point_, "error", msg_);
 	}
 	
-	private synchronized void append(int point_, String level_, String msg_) {
-		String line = null;
+	private void append(int point_, String level_, String msg_) {
+		if (msg_ == null || msg_.isEmpty()) {
+			return;
+		}
 		
-		try {
-			int checkpointToWrite = (point_ > 0 ? point_ : this.lastCheckPoint);
-			
-			if (msg_.equals("") == false) {
-				line = this.dateFormat.format(new java.util.Date()) + " (" + level_ + ") " + msg_;
-				if (this.checkpoints.containsKey(checkpointToWrite) && this.checkpoints.get(checkpointToWrite) != null) {
-					this.checkpoints.get(checkpointToWrite).add(line);
+		if (level_.equals("debug") && this.submitted.get() - this.written >= QUEUE_LIMIT) {
+			this.dropped.incrementAndGet();
+			return;
+		}
+		
+		this.queue.add(new Record(System.currentTimeMillis(), point_ > 0 ? point_ : this.lastCheckPoint, level_, msg_));
+		this.submitted.incrementAndGet();
+		if (this.writerWaiting) {
+			LockSupport.unpark(this.writer);
+		}
+	}
+	
+	/**
+	 * Wait until the lines logged before the call are in their checkpoint, for at most FLUSH_TIMEOUT
+	 */
+	public void flush() {
+		if (Thread.currentThread() == this.writer) {
+			return;
+		}
+		
+		long target = this.submitted.get();
+		long end = System.currentTimeMillis() + FLUSH_TIMEOUT;
+		synchronized (this.flushLock) {
+			while (this.written < target) {
+				long remaining = end - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return;
+				}
+				// the writer wakes the waiters up as soon as it is reached, even if more lines keep coming
+				this.flushTarget = Math.min(this.flushTarget, target);
+				LockSupport.unpark(this.writer);
+				try {
+					this.flushLock.wait(remaining);
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+	
+	private void writeLoop() {
+		while (true) {
+			Record record = this.queue.poll();
+			if (record == null) {
+				synchronized (this.flushLock) {
+					this.flushLock.notifyAll();
+				}
+				
+				// checked again once the flag is set, a line added in between would not wake the writer up
+				this.writerWaiting = true;
+				if (this.queue.isEmpty()) {
+					LockSupport.park(this);
 				}
-				if (this.printStdOut) {
-					System.out.println(line);
+				this.writerWaiting = false;
+				continue;
+			}
+			
+			long droppedLines = this.dropped.getAndSet(0);
+			if (droppedLines > 0) {
+				this.write(new Record(record.time, record.checkpoint, "debug", droppedLines + " debug lines dropped, the log could not keep up"));
+			}
+			this.write(record);
+			this.written++;
+			if (this.written >= this.flushTarget) {
+				synchronized (this.flushLock) {
+					this.flushTarget = Long.MAX_VALUE; // the waiters not done yet set their target again
+					this.flushLock.notifyAll();
 				}
 			}
 		}
+	}
+	
+	private void write(Record record) {
+		try {
+			String line = this.getTimestamp(record.time) + " (" + record.level + ") " + record.message;
+			CheckPointLog checkpoint = this.checkpoints.get(record.checkpoint);
+			if (checkpoint != null) {
+				checkpoint.add(line);
+			}
+			if (this.printStdOut) {
+				this.print(line);
+			}
+		}
 		catch (Exception e) {
 			// Nothing to do here. Just allow the thread to continue
 		}
 	}
 	
+	private void print(String line) {
+		if (this.consoleDropped > 0 && this.console.offer(this.consoleDropped + " lines not printed, the console could not keep up")) {
+			this.consoleDropped = 0;
+		}
+		if (this.consoleDropped > 0 || this.console.offer(line) == false) {
+			this.consoleDropped++;
+		}
+	}
+	
+	private void printLoop() {
+		while (true) {
+			try {
+				System.out.println(this.console.take());
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * The timestamp has a precision of one second, it is formatted once per second
+	 */
+	private String getTimestamp(long time) {
+		long second = time / 1000;
+		if (second != this.lastSecond || this.lastTimestamp == null) {
+			this.lastTimestamp = this.dateFormat.format(new Date(time));
+			this.lastSecond = second;
+		}
+		return this.lastTimestamp;
+	}
+	
 	public int newCheckPoint() {
 		int time = (int) (new Date().getTime());
-		this.checkpoints.put(time, new ArrayList<String>());
+		this.checkpoints.put(time, new CheckPointLog());
 		this.lastCheckPoint = time;
 		return this.lastCheckPoint;
 	}
 	
-	public Optional<ArrayList<String>> getForCheckPoint(int point_) {
+	public Optional<CheckPointLog> getForCheckPoint(int point_) {
+		this.flush();
 		return Optional.ofNullable(this.checkpoints.get(point_));
 	}
 	
 	public void removeCheckPoint(int point_) {
 		try {
-			this.checkpoints.remove(point_);
+			CheckPointLog checkpoint = this.checkpoints.remove(point_);
+			if (checkpoint != null) {
+				checkpoint.discard();
+			}
 		}
 		catch (UnsupportedOperationException e) {
 		}
@@ -120,11 +293,28 @@ public class Log {
 	
 	public static synchronized void printCheckPoint(int point_) {
 		Log log = Log.getInstance(null);
-		Optional<ArrayList<String>> logs = log.getForCheckPoint(point_);
+		Optional<CheckPointLog> logs = log.getForCheckPoint(point_);
 		if (logs.isPresent()) {
-			for (String alog : logs.get()) {
-				System.out.println(alog);
+			try {
+				logs.get().forEachLine(System.out::println);
 			}
+			catch (IOException e) {
+				// Nothing to do here, the lines are only printed
+			}
+		}
+	}
+	
+	private static class Record {
+		private final long time;
+		private final int checkpoint;
+		private final String level;
+		private final String message;
+		
+		private Record(long time, int checkpoint, String level, String message) {
+			this.time = time;
+			this.checkpoint = checkpoint;
+			this.level = level;
+			this.message = message;
 		}
 	}
 }
@@ -0,0 +1,224 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/****************
+ * Progress of an archive download, stored in a small file next to the .partial file. A download interrupted by a network error or a client restart
+ * continues where it stopped instead of starting again from the first byte. The final md5 check of the archive is unchanged.
+ */
+public class PartialDownload {
+	public static final String PARTIAL_EXTENSION = ".partial";
+	public static final String RESUME_EXTENSION = ".resume";
+	
+	private final String destination;
+	private final String md5;
+	private final long size;
+	private final List<Segment> segments;
+	private String url;
+	
+	public PartialDownload(String destination, String url, String md5, long size, List<Segment> segments) {
+		this.destination = destination;
+		this.url = url;
+		this.md5 = md5;
+		this.size = size;
+		this.segments = segments;
+	}
+	
+	public long getSize() {
+		return this.size;
+	}
+	
+	public void setUrl(String url) {
+		this.url = url;
+	}
+	
+	public long getWritten() {
+		long written = 0;
+		for (Segment segment : this.segments) {
+			written += segment.written;
+		}
+		return written;
+	}
+	
+	public boolean isComplete() {
+		return this.getIncompleteSegments().isEmpty();
+	}
+	
+	public List<Segment> getIncompleteSegments() {
+		List<Segment> incomplete = new ArrayList<>();
+		for (Segment segment : this.segments) {
+			if (segment.isComplete() == false) {
+				incomplete.add(segment);
+			}
+		}
+		return incomplete;
+	}
+	
+	public List<Segment> getSegments() {
+		return Collections.unmodifiableList(this.segments);
+	}
+	
+	/**
+	 * Write the progress next to the partial file
+	 *
+	 * @param data channel of the partial file, flushed before the progress is recorded so a resume never trusts bytes which are not on the disk yet.
+	 *             Can be null.
+	 * @return false if the progress could not be written (the next attempt will start from the first byte)
+	 */
+	public boolean save(FileChannel data) {
+		Properties properties = new Properties();
+		properties.setProperty("url", this.url);
+		properties.setProperty("md5", this.md5);
+		properties.setProperty("size", Long.toString(this.size));
+		StringBuilder ranges = new StringBuilder();
+		for (Segment segment : this.segments) {
+			if (ranges.length() > 0) {
+				ranges.append(',');
+			}
+			ranges.append(segment.start).append('-').append(segment.end).append(':').append(segment.written);
+		}
+		
+		try {
+			if (data != null && data.isOpen()) {
+				data.force(false);
+			}
+			properties.setProperty("segments", ranges.toString());
+			
+			File resumeFile = getResumeFile(this.destination);
+			File temp = new File(resumeFile.getAbsolutePath() + ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				properties.store(writer, null);
+			}
+			try {
+				Files.move(temp.toPath(), resumeFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), resumeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Forget the progress, the partial file itself is kept
+	 */
+	public void discard() {
+		getResumeFile(this.destination).delete();
+	}
+	
+	/**
+	 * @return the progress of an interrupted download of the archive, null if there is nothing to resume
+	 */
+	public static PartialDownload load(String destination, String md5) {
+		File resumeFile = getResumeFile(destination);
+		File partialFile = new File(destination + PARTIAL_EXTENSION);
+		if (resumeFile.isFile() == false || partialFile.isFile() == false) {
+			return null;
+		}
+		
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(resumeFile.toPath(), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+		
+		if (md5 == null || md5.equals(properties.getProperty("md5")) == false) {
+			return null;
+		}
+		
+		try {
+			long size = Long.parseLong(properties.getProperty("size", "-1"));
+			if (size <= 0 || partialFile.length() != size) {
+				return null;
+			}
+			
+			List<Segment> segments = new ArrayList<>();
+			for (String range : properties.getProperty("segments", "").split(",")) {
+				int dash = range.indexOf('-');
+				int colon = range.indexOf(':');
+				if (dash == -1 || colon < dash) {
+					return null;
+				}
+				Segment segment = new Segment(segments.size(), Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1, colon)),
+					Long.parseLong(range.substring(colon + 1)));
+				if (segment.written < 0 || segment.start + segment.written > segment.end + 1) {
+					return null;
+				}
+				segments.add(segment);
+			}
+			
+			return new PartialDownload(destination, properties.getProperty("url", ""), md5, size, segments);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Remove the partial file of an archive and its progress
+	 */
+	public static void delete(String destination) {
+		new File(destination + PARTIAL_EXTENSION).delete();
+		getResumeFile(destination).delete();
+	}
+	
+	/**
+	 * @return true if the file is a partial archive or a progress file of a download which can be resumed, those files must survive a cache cleanup
+	 */
+	public static boolean isResumable(File file) {
+		String name = file.getAbsolutePath();
+		if (name.endsWith(PARTIAL_EXTENSION)) {
+			return getResumeFile(name.substring(0, name.length() - PARTIAL_EXTENSION.length())).isFile();
+		}
+		else if (name.endsWith(RESUME_EXTENSION)) {
+			return new File(name.substring(0, name.length() - RESUME_EXTENSION.length()) + PARTIAL_EXTENSION).isFile();
+		}
+		return false;
+	}
+	
+	private static File getResumeFile(String destination) {
+		return new File(destination + RESUME_EXTENSION);
+	}
+	
+	/**
+	 * A byte range of the archive, downloaded on its own connection
+	 */
+	static class Segment {
+		final int index;
+		final long start;
+		final long end; // inclusive
+		volatile long written;
+		
+		Segment(int index, long start, long end, long written) {
+			this.index = index;
+			this.start = start;
+			this.end = end;
+			this.written = written;
+		}
+		
+		long getPosition() {
+			return this.start + this.written;
+		}
+		
+		boolean isComplete() {
+			return this.getPosition() > this.end;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package com.sheepit.client;
+
+/****************
+ * Parser of the status lines written by Blender while rendering, for example
+ * "Fra:1 Mem:35.62M (Peak 35.65M) | Time:00:00.41 | Remaining:00:05.12 | Mem:12.01M, Peak:12.01M | Scene, ViewLayer | Sample 1/64".
+ * The fields are read in a single pass over the characters of the line, without regex or substring: each field is only compared where its first
+ * character is found, and the tile count is read from the last " Tile " seen. The same parser is reused for every line of a render, so parsing a line
+ * does not allocate anything.
+ */
+public class RenderLogParser {
+	private static final String[] PROGRESS_KEYWORDS = { "Rendered", "Path Tracing Tile", "Rendering", "Sample" };
+	private static final String REMAINING = "remaining:";
+	private static final String TILE = " Tile ";
+	private static final String SCENE_PREPARATION = "Read blend:";
+	private static final String TIME = "Time";
+	private static final String FRAME = "Fra:";
+	private static final String[] POST_PROCESSING_KEYWORDS = { " | Compositing", " | Denoising" };
+	private static final String PEAK = "Peak";
+	
+	// values of the last parsed line
+	private int progress; // in %, -1 if the line has no progress
+	private boolean remainingFound; // the line has a remaining time field
+	private int remaining; // in seconds, -1 if missing or not readable
+	private boolean time;
+	private int tile; // in %, -1 if the line does not end with a tile count
+	private boolean scenePreparation;
+	private boolean postProcessing;
+	
+	// over all the parsed lines
+	private float peakMemory; // in MB, as reported by the renderer
+	
+	// position of the cursor in the line, and the number read by readNumber()
+	private int position;
+	private long number;
+	
+	public RenderLogParser() {
+		this.peakMemory = 0;
+		this.reset();
+	}
+	
+	public void parse(String line) {
+		this.reset();
+		int length = line.length();
+		int postProcessingStart = this.getPostProcessingStart(line);
+		int lastTile = -1;
+		
+		for (int i = 0; i < length; i++) {
+			char c = line.charAt(i);
+			if (c == ' ' && i + 1 < length) {
+				// the fields after a space are told apart by their first character
+				switch (line.charAt(i + 1)) {
+					case 'R':
+					case 'P':
+					case 'S':
+						if (this.progress == -1) {
+							this.parseProgress(line, i + 1);
+						}
+						break;
+					case 'T':
+						if (line.startsWith(TILE, i)) {
+							lastTile = i;
+						}
+						break;
+					case '|':
+						if (this.postProcessing == false && postProcessingStart != -1 && i >= postProcessingStart) {
+							this.postProcessing = this.startsWithAny(line, i, POST_PROCESSING_KEYWORDS);
+						}
+						break;
+					default:
+						break;
+				}
+			}
+			else if (c == 'r' || c == 'R') {
+				if (this.remainingFound == false && line.regionMatches(true, i, REMAINING, 0, REMAINING.length())) {
+					this.remainingFound = true;
+					this.parseRemaining(line, i + REMAINING.length());
+				}
+				else if (c == 'R' && this.scenePreparation == false) {
+					this.scenePreparation = line.startsWith(SCENE_PREPARATION, i);
+				}
+			}
+			else if (c == 'T' && this.time == false) {
+				this.time = line.startsWith(TIME, i);
+			}
+			else if (c == 'P' && line.startsWith(PEAK, i)) {
+				this.parsePeakMemory(line, i + PEAK.length());
+			}
+		}
+		
+		if (lastTile != -1) {
+			this.parseTile(line, lastTile);
+		}
+	}
+	
+	/**
+	 * @return the progress of the render (in %) given by the line, -1 if the line has no progress
+	 */
+	public int getProgress() {
+		return this.progress;
+	}
+	
+	/**
+	 * @return true if the line has a "remaining:" field, even if its value cannot be read
+	 */
+	public boolean hasRemaining() {
+		return this.remainingFound;
+	}
+	
+	/**
+	 * @return the remaining render time (in seconds) given by the line, -1 if the value is missing or cannot be read
+	 */
+	public int getRemaining() {
+		return this.remaining;
+	}
+	
+	public boolean hasTime() {
+		return this.time;
+	}
+	
+	/**
+	 * @return the progress (in %) of a line ending by " Tile current/total", -1 otherwise
+	 */
+	public int getTileProgress() {
+		return this.tile;
+	}
+	
+	public boolean isScenePreparation() {
+		return this.scenePreparation;
+	}
+	
+	public boolean isPostProcessing() {
+		return this.postProcessing;
+	}
+	
+	/**
+	 * @return the highest peak memory (in MB) reported by the renderer since the parser was created
+	 */
+	public float getPeakMemory() {
+		return this.peakMemory;
+	}
+	
+	private void reset() {
+		this.progress = -1;
+		this.remainingFound = false;
+		this.remaining = -1;
+		this.time = false;
+		this.tile = -1;
+		this.scenePreparation = false;
+		this.postProcessing = false;
+	}
+	
+	/**
+	 * "Rendered|Path Tracing Tile|Rendering|Sample" followed by "current/total" (a space allowed around the slash)
+	 */
+	private void parseProgress(String line, int start) {
+		for (String keyword : PROGRESS_KEYWORDS) {
+			if (line.startsWith(keyword, start) == false) {
+				continue;
+			}
+			
+			this.position = start + keyword.length();
+			if (this.skip(line, ' ') == false || this.readNumber(line) == false) {
+				return;
+			}
+			long current = this.number;
+			this.skip(line, ' '); // optional
+			if (this.skip(line, '/') == false) {
+				return;
+			}
+			this.skip(line, ' '); // optional
+			if (this.readNumber(line) == false || this.number == 0) {
+				return;
+			}
+			this.progress = (int) Math.abs((current * 100) / this.number);
+			return;
+		}
+	}
+	
+	/**
+	 * "hh:mm:ss.xx" or "mm:ss.xx", up to the next space
+	 */
+	private void parseRemaining(String line, int start) {
+		this.position = start;
+		long seconds = 0;
+		int fields = 0;
+		while (fields < 3 && this.readNumber(line)) {
+			seconds = seconds * 60 + this.number;
+			fields++;
+			if (this.skip(line, ':') == false) {
+				break;
+			}
+		}
+		if (this.position < line.length() && line.charAt(this.position) == '.') {
+			this.position++;
+			this.readNumber(line); // hundredths of second, ignored
+		}
+		
+		boolean complete = this.position == line.length() || line.charAt(this.position) == ' ';
+		if (fields >= 2 && complete && seconds <= Integer.MAX_VALUE) {
+			this.remaining = (int) seconds;
+		}
+	}
+	
+	/**
+	 * "Peak 35.65M" or "Peak:35.65M"
+	 */
+	private void parsePeakMemory(String line, int start) {
+		this.position = start;
+		if (this.skip(line, ' ') == false && this.skip(line, ':') == false) {
+			return;
+		}
+		if (this.readNumber(line) == false) {
+			return;
+		}
+		float value = this.number;
+		if (this.skip(line, '.')) {
+			int digitsStart = this.position;
+			if (this.readNumber(line)) {
+				value += this.number / (float) Math.pow(10, this.position - digitsStart);
+			}
+		}
+		if (this.skip(line, 'M') && value > this.peakMemory) {
+			this.peakMemory = value;
+		}
+	}
+	
+	/**
+	 * The last " Tile " of the line followed by "current/total" and the end of the line
+	 */
+	private void parseTile(String line, int index) {
+		this.position = index + TILE.length();
+		if (this.readNumber(line) == false) {
+			return;
+		}
+		long current = this.number;
+		if (this.skip(line, '/') == false || this.readNumber(line) == false || this.position != line.length() || this.number == 0) {
+			return;
+		}
+		this.tile = (int) (100.0 * current / this.number);
+	}
+	
+	/**
+	 * A post-processing line is "Fra:<digits> " then " | Compositing" or " | Denoising" later in the line
+	 *
+	 * @return the position after "Fra:<digits> ", -1 if the line does not start with it
+	 */
+	private int getPostProcessingStart(String line) {
+		if (line.startsWith(FRAME) == false) {
+			return -1;
+		}
+		this.position = FRAME.length();
+		this.readNumber(line);
+		return this.skip(line, ' ') ? this.position : -1;
+	}
+	
+	private boolean startsWithAny(String line, int start, String[] keywords) {
+		for (String keyword : keywords) {
+			if (line.startsWith(keyword, start)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private boolean skip(String line, char c) {
+		if (this.position < line.length() && line.charAt(this.position) == c) {
+			this.position++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Read the digits at the cursor into number
+	 *
+	 * @return false if there is no digit at the cursor
+	 */
+	private boolean readNumber(String line) {
+		int start = this.position;
+		long value = 0;
+		while (this.position < line.length()) {
+			char c = line.charAt(this.position);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			if (value < Integer.MAX_VALUE) {
+				value = value * 10 + (c - '0');
+			}
+			this.position++;
+		}
+		this.number = value;
+		return this.position > start;
+	}
+}
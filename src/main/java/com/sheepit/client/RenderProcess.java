@@ -24,10 +24,16 @@ import lombok.Data;
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.sheepit.client.os.MemorySampler;
+import com.sheepit.client.os.OS;
+import com.sheepit.client.os.RenderGroup;
 import lombok.Setter;
 import oshi.software.os.OSProcess;
 
 @Data public class RenderProcess {
+	private static final long MEMORY_CHECK_FAST = 200; // ms, while the memory usage changes (scene preparation)
+	private static final long MEMORY_CHECK_SLOW = 1000; // ms, once it is steady (rendering)
+	
 	private long startTime;
 	private long endTime;
 	
@@ -42,12 +48,18 @@ import oshi.software.os.OSProcess;
 	private long peakMemoryUsed; // in kB
 	private int coresUsed;
 	private Process process;
-	private OSProcess osProcess;
+	private OSProcess osProcess; // only used when there is no memorySampler
+	private MemorySampler memorySampler;
+	private RenderGroup renderGroup; // null if the renderer does not run in a group
+	private long memoryCheckDelay; // in ms
 	private Log log;
 	
 	public RenderProcess(Log _log) {
 		process = null;
 		osProcess = null;
+		memorySampler = null;
+		renderGroup = null;
+		memoryCheckDelay = MEMORY_CHECK_FAST;
 		startTime = -1;
 		endTime = -1;
 		scenePrepDuration = -1;
@@ -60,22 +72,50 @@ import oshi.software.os.OSProcess;
 		log = _log;
 	}
 	
-	public void update() {
-		OSProcess osp = osProcess; // Shallow copy to try to not run into a race condition via being nulled
-		try {
-			if (osp != null && osp.updateAttributes()){ // We enter if updateAttributes() was successful
-				long mem = osp.getResidentSetSize() / 1024; // Avoid multiple ram usage calls, because again, they might differ
-				if (mem != 0){
-					memoryUsed.set(mem);
-					if (peakMemoryUsed < mem) {
-						peakMemoryUsed = mem;
+	/**
+	 * Sample the memory used by the renderer
+	 *
+	 * @return the delay before the next sample in ms, short while the memory usage changes and longer once it is steady
+	 */
+	public long update() {
+		long previous = memoryUsed.get();
+		MemorySampler sampler = memorySampler;
+		if (sampler != null) {
+			long mem = sampler.sample(); // the renderer and its child processes
+			if (mem > 0) {
+				setMemory(mem);
+			}
+		}
+		else {
+			OSProcess osp = osProcess; // Shallow copy to try to not run into a race condition via being nulled
+			try {
+				if (osp != null && osp.updateAttributes()){ // We enter if updateAttributes() was successful
+					long mem = osp.getResidentSetSize() / 1024; // Avoid multiple ram usage calls, because again, they might differ
+					if (mem != 0){
+						setMemory(mem);
 					}
 				}
+			} catch (NullPointerException ex) { // We are racing the system itself, we can't avoid catching NPE's
+				log.debug("RenderProcess::Handled process becoming unavailable mid-update");
+				osProcess = null;
+				memoryUsed.set(0);
 			}
-		} catch (NullPointerException ex) { // We are racing the system itself, we can't avoid catching NPE's
-			log.debug("RenderProcess::Handled process becoming unavailable mid-update");
-			osProcess = null;
-			memoryUsed.set(0);
+		}
+		
+		// steady: less than 2% of change since the previous sample
+		if (Math.abs(memoryUsed.get() - previous) > previous / 50) {
+			memoryCheckDelay = MEMORY_CHECK_FAST;
+		}
+		else {
+			memoryCheckDelay = Math.min(memoryCheckDelay * 2, MEMORY_CHECK_SLOW);
+		}
+		return memoryCheckDelay;
+	}
+	
+	private void setMemory(long mem) {
+		memoryUsed.set(mem);
+		if (peakMemoryUsed < mem) {
+			peakMemoryUsed = mem;
 		}
 	}
 	
@@ -92,9 +132,28 @@ import oshi.software.os.OSProcess;
 		return 0;
 	}
 	
+	/**
+	 * Kill the renderer, with all its child processes when it runs in a group
+	 */
+	public boolean kill() {
+		RenderGroup group = renderGroup;
+		if (group != null && group.kill()) {
+			return true;
+		}
+		return OS.getOS().kill(process);
+	}
+	
 	public void finish() {
 		endTime = new Date().getTime();
 		osProcess = null;
+		MemorySampler sampler = memorySampler;
+		if (sampler != null) {
+			sampler.close();
+		}
+		RenderGroup group = renderGroup;
+		if (group != null) {
+			group.close();
+		}
 		process = null;
 	}
 	
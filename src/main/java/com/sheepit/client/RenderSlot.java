@@ -0,0 +1,171 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sheepit.client.hardware.gpu.GPUDevice;
+import com.sheepit.client.os.OS;
+
+import lombok.Data;
+
+/****************
+ * One of the renders a client runs at the same time, either one of the CPU render slots of the configuration or one of its GPUs. A slot has its own
+ * GPU, its share of the cores, of the cpus and of the memory, and its own working directory for the extracted scenes and the frames. The archives are
+ * still downloaded once for all the slots: the working directory of the client is the shared downloads directory of the slots.
+ */
+@Data public class RenderSlot {
+	public static final String DIRECTORY_PREFIX = "slot-";
+	
+	private final int index;
+	private final Configuration configuration;
+	private final Gui gui;
+	private final WarmRenderer warmRenderer; // null if each frame is rendered by a new renderer
+	private volatile Job job;
+	private boolean reserved; // the slot holds one of the jobs the server allows to the session, from the request of the job to its end
+	private int noJobRetryIter; // requests of this slot in a row which got no job
+	
+	/**
+	 * @return the slots of the configuration, one per GPU when several GPUs are used. A single slot uses the configuration and the gui of the client, as
+	 * without slots.
+	 */
+	public static List<RenderSlot> create(Configuration config, Gui gui, Log log) {
+		List<GPUDevice> gpus = new ArrayList<>();
+		if (config.getGPUDevice() != null && config.getComputeMethod() != Configuration.ComputeType.CPU) {
+			gpus.add(config.getGPUDevice());
+			gpus.addAll(config.getAdditionalGPUDevices());
+		}
+		
+		int count = gpus.size() > 1 ? gpus.size() : Math.max(1, config.getRenderSlots());
+		List<RenderSlot> slots = new ArrayList<>(count);
+		if (count == 1) {
+			slots.add(new RenderSlot(0, config, gui, config.isUseWarmRenderer() ? new WarmRenderer(log) : null));
+			return slots;
+		}
+		
+		int cores = config.getNbCores() > 0 ? config.getNbCores() : OS.getOS().getCPU().cores();
+		List<String> placements = OS.getOS().splitCPUPlacement(config, count, log);
+		for (int i = 0; i < count; i++) {
+			Configuration slotConfig = new Configuration(config);
+			File directory = new File(config.getWorkingDirectory(), DIRECTORY_PREFIX + i);
+			directory.mkdirs();
+			slotConfig.setWorkingDirectory(directory);
+			slotConfig.setStorageDirectory(config.getStorageDir());
+			if (config.getSharedDownloadsDirectory() == null) {
+				slotConfig.setSharedDownloadsDirectory(config.getWorkingDirectory());
+			}
+			slotConfig.setNbCores(Math.max(1, cores / count));
+			if (config.getMaxAllowedMemory() > 0) {
+				slotConfig.setMaxAllowedMemory(config.getMaxAllowedMemory() / count);
+			}
+			slotConfig.setCpuPlacement(placements != null ? placements.get(i) : null);
+			slotConfig.setRenderSlots(1);
+			if (gpus.size() > 1) {
+				slotConfig.setGPUDevice(gpus.get(i));
+			}
+			slotConfig.setAdditionalGPUDevices(new ArrayList<>());
+			
+			String name = gpus.size() > 1 ? gpus.get(i).getId() : "Slot " + (i + 1);
+			log.debug("RenderSlot::create " + name + " cores " + slotConfig.getNbCores() + " cpus " + slotConfig.getCpuPlacement() + " directory " + directory);
+			slots.add(new RenderSlot(i, slotConfig, new SlotGui(gui, i, name), config.isUseWarmRenderer() ? new WarmRenderer(log) : null));
+		}
+		return slots;
+	}
+	
+	/****************
+	 * Gui of a slot, the messages are prefixed by the name of the slot (its number or its GPU). The tray icon only follows the first slot.
+	 */
+	private static class SlotGui implements Gui {
+		private final Gui gui;
+		private final int index;
+		private final String prefix;
+		
+		public SlotGui(Gui gui, int index, String name) {
+			this.gui = gui;
+			this.index = index;
+			this.prefix = name + ": ";
+		}
+		
+		private String prefix(String message) {
+			return message == null || message.isEmpty() ? message : this.prefix + message;
+		}
+		
+		@Override public void start() {
+			this.gui.start();
+		}
+		
+		@Override public void stop() {
+			this.gui.stop();
+		}
+		
+		@Override public void status(String msg_) {
+			this.gui.status(this.prefix(msg_));
+		}
+		
+		@Override public void status(String msg_, boolean overwriteSuspendedMsg) {
+			this.gui.status(this.prefix(msg_), overwriteSuspendedMsg);
+		}
+		
+		@Override public void status(String msg_, int progress) {
+			this.gui.status(this.prefix(msg_), progress);
+		}
+		
+		@Override public void status(String msg_, int progress, long size) {
+			this.gui.status(this.prefix(msg_), progress, size);
+		}
+		
+		@Override public void updateTrayIcon(Integer percentage_) {
+			if (this.index == 0) {
+				this.gui.updateTrayIcon(percentage_);
+			}
+		}
+		
+		@Override public void setRenderingProjectName(String name_) {
+			this.gui.setRenderingProjectName(this.prefix(name_));
+		}
+		
+		@Override public void setRemainingTime(String time_) {
+			this.gui.setRemainingTime(this.prefix(time_));
+		}
+		
+		@Override public void setRenderingTime(String time_) {
+			this.gui.setRenderingTime(this.prefix(time_));
+		}
+		
+		@Override public void displayTransferStats(TransferStats downloads, TransferStats uploads) {
+			this.gui.displayTransferStats(downloads, uploads);
+		}
+		
+		@Override public void displayStats(Stats stats) {
+			this.gui.displayStats(stats);
+		}
+		
+		@Override public void displayUploadQueueStats(int queueSize, long queueVolume) {
+			this.gui.displayUploadQueueStats(queueSize, queueVolume);
+		}
+		
+		@Override public void error(String err_) {
+			this.gui.error(this.prefix(err_));
+		}
+		
+		@Override public void AddFrameRendered() {
+			this.gui.AddFrameRendered();
+		}
+		
+		@Override public void successfulAuthenticationEvent(String publickey) {
+			this.gui.successfulAuthenticationEvent(publickey);
+		}
+		
+		@Override public void setClient(Client cli) {
+			this.gui.setClient(cli);
+		}
+		
+		@Override public void setComputeMethod(String computeMethod_) {
+			this.gui.setComputeMethod(computeMethod_);
+		}
+		
+		@Override public Client getClient() {
+			return this.gui.getClient();
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import net.lingala.zip4j.ZipFile;
+import net.lingala.zip4j.model.FileHeader;
+
+/****************
+ * Renderers extracted from their archive, kept in the storage directory between the restarts of the client (one directory per renderer md5).
+ * A manifest (list of the files with their size and the CRC32 recorded in the archive, and a checksum of the list itself) is written next to a tree
+ * once its extraction is complete. A tree without a manifest, or whose files do not match it, is removed by the cleanup and extracted again when needed.
+ * The cleanup at startup only compares the sizes, the content of a tree is read and checked against the CRCs the first time it is used by a render.
+ */
+public class RendererCache {
+	public static final String DIRECTORY = "renderers";
+	
+	private static final String MANIFEST_EXTENSION = ".manifest";
+	private static final String CHECKSUM_PREFIX = "checksum\t";
+	private static final String SEPARATOR = "\t";
+	
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	
+	private final File directory;
+	private final Log log;
+	private final Set<String> checked; // md5 of the trees whose content has been checked since the start of the client
+	
+	public RendererCache(File directory, Log log) {
+		this.directory = directory;
+		this.log = log;
+		this.checked = ConcurrentHashMap.newKeySet();
+	}
+	
+	public File getDirectory() {
+		return this.directory;
+	}
+	
+	public File getTree(String md5) {
+		return new File(this.directory, md5);
+	}
+	
+	/**
+	 * @return true if the renderer has been completely extracted and its files match the CRCs of its archive, they are read only on the first call
+	 */
+	public boolean isReady(String md5) {
+		if (this.getTree(md5).isDirectory() == false || this.getManifest(md5).isFile() == false) {
+			return false;
+		}
+		if (this.checked.contains(md5)) {
+			return true;
+		}
+		if (this.verify(md5, true) == false) {
+			this.log.debug("RendererCache::isReady renderer " + md5 + " does not match its archive");
+			return false;
+		}
+		this.checked.add(md5);
+		return true;
+	}
+	
+	/**
+	 * Extract the archive of a renderer in its tree and record its manifest
+	 *
+	 * @return 0 on success, the tree is removed on failure
+	 */
+	public int extract(String archive, String md5) {
+		this.remove(md5);
+		File tree = this.getTree(md5);
+		if (tree.mkdirs() == false) {
+			this.log.error("RendererCache::extract unable to create " + tree.getAbsolutePath());
+			return -1;
+		}
+		
+		int ret = Utils.unzipFileIntoDirectory(archive, tree.getAbsolutePath(), null, this.log);
+		if (ret != 0) {
+			this.remove(md5);
+			return ret;
+		}
+		
+		List<String> entries = new ArrayList<>();
+		try (ZipFile zipFile = new ZipFile(archive)) {
+			for (FileHeader header : zipFile.getFileHeaders()) {
+				if (header.isDirectory() == false) {
+					entries.add(header.getUncompressedSize() + SEPARATOR + header.getCrc() + SEPARATOR + header.getFileName());
+				}
+			}
+		}
+		catch (IOException e) {
+			this.log.error("RendererCache::extract unable to list the files of " + archive + " (" + e + ")");
+			this.remove(md5);
+			return -2;
+		}
+		
+		// written last, a tree without manifest is an interrupted extraction
+		File manifest = this.getManifest(md5);
+		File temp = new File(manifest.getAbsolutePath() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(CHECKSUM_PREFIX + checksum(entries));
+			writer.newLine();
+			for (String entry : entries) {
+				writer.write(entry);
+				writer.newLine();
+			}
+		}
+		catch (IOException e) {
+			this.log.error("RendererCache::extract unable to write " + temp.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+			this.remove(md5);
+			return -3;
+		}
+		try {
+			Files.move(temp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			this.log.error("RendererCache::extract unable to write " + manifest.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+			this.remove(md5);
+			return -3;
+		}
+		this.checked.add(md5); // the extraction has checked the CRC of each entry
+		return 0;
+	}
+	
+	/**
+	 * @return true if the manifest of the tree is intact and every file it lists is present with the right size (a stat per file, nothing is read)
+	 */
+	public boolean verify(String md5) {
+		return this.verify(md5, false);
+	}
+	
+	/**
+	 * @param content also read every file and compare its CRC32 with the one of the archive
+	 */
+	private boolean verify(String md5, boolean content) {
+		File tree = this.getTree(md5);
+		File manifest = this.getManifest(md5);
+		if (tree.isDirectory() == false || manifest.isFile() == false) {
+			return false;
+		}
+		
+		String expected;
+		List<String> entries = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+			expected = reader.readLine();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				entries.add(line);
+			}
+		}
+		catch (IOException e) {
+			return false;
+		}
+		
+		if (expected == null || expected.equals(CHECKSUM_PREFIX + checksum(entries)) == false) {
+			this.log.debug("RendererCache::verify corrupted manifest " + manifest.getAbsolutePath());
+			return false;
+		}
+		
+		for (String entry : entries) {
+			String[] parts = entry.split(SEPARATOR, 3);
+			if (parts.length != 3) {
+				return false; // manifest of a former version, without the CRCs
+			}
+			File file = new File(tree, parts[2].replace("/", File.separator));
+			try {
+				long size = Long.parseLong(parts[0]);
+				long crc = Long.parseLong(parts[1]);
+				Path path = file.toPath();
+				if (Files.isSymbolicLink(path)) {
+					// the entry of a link is its target, see Utils::unzipEntry
+					byte[] target = Files.readSymbolicLink(path).toString().getBytes(StandardCharsets.UTF_8);
+					if (target.length != size || (content && crc(target) != crc)) {
+						this.log.debug("RendererCache::verify link " + file.getAbsolutePath() + " has been modified");
+						return false;
+					}
+				}
+				else if (file.isFile() == false || file.length() != size) {
+					this.log.debug("RendererCache::verify " + file.getAbsolutePath() + " is missing or has been modified");
+					return false;
+				}
+				else if (content && crc(path) != crc) {
+					this.log.debug("RendererCache::verify " + file.getAbsolutePath() + " does not match the CRC of its archive");
+					return false;
+				}
+			}
+			catch (NumberFormatException | IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * The files of the tree will be checked against the CRCs of the archive again on the next use of the renderer
+	 */
+	public void invalidate(String md5) {
+		this.checked.remove(md5);
+	}
+	
+	public void remove(String md5) {
+		this.checked.remove(md5);
+		this.getManifest(md5).delete();
+		Utils.delete(this.getTree(md5));
+	}
+	
+	/**
+	 * Remove the incomplete and corrupted trees, and the ones whose archive is no longer in the cache
+	 *
+	 * @param archives md5 of the renderer archives available
+	 */
+	public void clean(Set<String> archives) {
+		File[] files = this.directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isFile() && name.endsWith(MANIFEST_EXTENSION) == false) {
+				file.delete(); // leftover of an interrupted manifest write
+				continue;
+			}
+			
+			String md5 = file.isFile() ? name.substring(0, name.length() - MANIFEST_EXTENSION.length()) : name;
+			if (archives.contains(md5) == false) {
+				this.log.debug("RendererCache::clean removing renderer " + md5 + ", its archive is no longer in the cache");
+				this.remove(md5);
+			}
+			else if (file.isDirectory() && this.verify(md5) == false) {
+				this.log.debug("RendererCache::clean removing renderer " + md5 + ", incomplete or modified");
+				this.remove(md5);
+			}
+			else if (file.isFile() && this.getTree(md5).isDirectory() == false) {
+				file.delete(); // manifest of a removed tree
+			}
+		}
+	}
+	
+	private File getManifest(String md5) {
+		return new File(this.directory, md5 + MANIFEST_EXTENSION);
+	}
+	
+	private static long checksum(List<String> entries) {
+		CRC32 crc = new CRC32();
+		for (String entry : entries) {
+			crc.update(entry.getBytes(StandardCharsets.UTF_8));
+			crc.update('\n');
+		}
+		return crc.getValue();
+	}
+	
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+	
+	private static long crc(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream input = Files.newInputStream(file)) {
+			int len;
+			while ((len = input.read(buffer)) != -1) {
+				crc.update(buffer, 0, len);
+			}
+		}
+		return crc.getValue();
+	}
+}
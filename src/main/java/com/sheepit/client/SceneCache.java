@@ -0,0 +1,208 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sheepit.client.os.OS;
+import com.sheepit.client.os.Windows;
+
+/****************
+ * Scenes extracted from their archive, kept in the working directory while the client runs (one directory per scene md5), so the frames of a
+ * project after the first one are not extracted again. A render never uses the tree itself but a view of it: a directory with a hard link to each of
+ * its files. The render can remove, move or add files in its view without changing the tree. A link shares the file with the tree and with the views
+ * of the other slots, so the files of the tree are made read-only and only linked if they can not be written: the files still writable (by root, on
+ * Windows) and the files of a file system without hard links are copied. The manifest (size and modification time of each file) written once the
+ * extraction is complete is still checked before each view, a modified tree is extracted again.
+ */
+public class SceneCache {
+	public static final String DIRECTORY = "scenes";
+	
+	private static final String MANIFEST_EXTENSION = ".manifest";
+	private static final String SEPARATOR = "\t";
+	
+	private final File directory;
+	private final Log log;
+	
+	public SceneCache(File directory, Log log) {
+		this.directory = directory;
+		this.log = log;
+	}
+	
+	public File getTree(String md5) {
+		return new File(this.directory, md5);
+	}
+	
+	/**
+	 * @return true if the scene has been completely extracted, the files themselves are checked by verify()
+	 */
+	public boolean isReady(String md5) {
+		return this.getTree(md5).isDirectory() && this.getManifest(md5).isFile();
+	}
+	
+	/**
+	 * Extract the archive of a scene in its tree and record its manifest
+	 *
+	 * @return 0 on success, the tree is removed on failure
+	 */
+	public int extract(String archive, char[] password, String md5) {
+		this.remove(md5);
+		File tree = this.getTree(md5);
+		if (tree.mkdirs() == false) {
+			this.log.error("SceneCache::extract unable to create " + tree.getAbsolutePath());
+			return -1;
+		}
+		
+		int ret = Utils.unzipFileIntoDirectory(archive, tree.getAbsolutePath(), password, this.log);
+		if (ret != 0) {
+			this.remove(md5);
+			return ret;
+		}
+		
+		List<String> entries;
+		try {
+			if (OS.getOS() instanceof Windows == false) { // a read-only file can not be removed on Windows
+				try (Stream<Path> walk = Files.walk(tree.toPath())) {
+					walk.filter(Files::isRegularFile).forEach(path -> path.toFile().setWritable(false, false));
+				}
+			}
+			entries = this.list(tree);
+		}
+		catch (IOException e) {
+			this.log.error("SceneCache::extract unable to list the files of " + tree.getAbsolutePath() + " (" + e + ")");
+			this.remove(md5);
+			return -2;
+		}
+		
+		// written last, a tree without manifest is an interrupted extraction
+		File manifest = this.getManifest(md5);
+		File temp = new File(manifest.getAbsolutePath() + ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				for (String entry : entries) {
+					writer.write(entry);
+					writer.newLine();
+				}
+			}
+			Files.move(temp.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			this.log.error("SceneCache::extract unable to write " + manifest.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+			this.remove(md5);
+			return -3;
+		}
+		return 0;
+	}
+	
+	/**
+	 * @return true if every file of the manifest is in the tree with the same size and modification time (a stat per file, nothing is read)
+	 */
+	public boolean verify(String md5) {
+		if (this.isReady(md5) == false) {
+			return false;
+		}
+		
+		List<String> expected = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(this.getManifest(md5).toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				expected.add(line);
+			}
+			
+			List<String> entries = this.list(this.getTree(md5));
+			if (entries.equals(expected) == false) {
+				this.log.debug("SceneCache::verify files of the scene " + md5 + " have been modified");
+				return false;
+			}
+		}
+		catch (IOException e) {
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Replace the view by a new one of the tree
+	 *
+	 * @return 0 on success
+	 */
+	public int createView(String md5, File view) {
+		Path tree = this.getTree(md5).toPath();
+		Utils.delete(view);
+		
+		List<Path> paths;
+		try (Stream<Path> walk = Files.walk(tree)) {
+			paths = walk.collect(Collectors.toList());
+		}
+		catch (IOException e) {
+			this.log.error("SceneCache::createView unable to list the files of " + tree + " (" + e + ")");
+			return -1;
+		}
+		
+		boolean link = true;
+		for (Path source : paths) {
+			Path target = view.toPath().resolve(tree.relativize(source));
+			try {
+				if (Files.isDirectory(source)) {
+					Files.createDirectories(target);
+					continue;
+				}
+				
+				if (link && Files.isWritable(source) == false) {
+					try {
+						Files.createLink(target, source);
+						continue;
+					}
+					catch (UnsupportedOperationException // underlying file system does not support hard-linking
+						| FileSystemException       // the user is not allowed to create hard links, or the file system does not support them
+						| SecurityException ignore) {
+						this.log.debug("SceneCache::createView failed to create a hard link, the files of the scene are copied");
+						link = false;
+					}
+				}
+				Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+				target.toFile().setWritable(true);
+			}
+			catch (IOException e) {
+				this.log.error("SceneCache::createView unable to create " + target + " (" + e + ")");
+				Utils.delete(view);
+				return -2;
+			}
+		}
+		return 0;
+	}
+	
+	public void remove(String md5) {
+		this.getManifest(md5).delete();
+		Utils.delete(this.getTree(md5));
+	}
+	
+	private File getManifest(String md5) {
+		return new File(this.directory, md5 + MANIFEST_EXTENSION);
+	}
+	
+	/**
+	 * @return size, modification time and path of the files of the tree, in the order of their path
+	 */
+	private List<String> list(File tree) throws IOException {
+		Path root = tree.toPath();
+		List<String> entries = new ArrayList<>();
+		try (Stream<Path> walk = Files.walk(root)) {
+			for (Path path : walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+				entries.add(Files.size(path) + SEPARATOR + Files.getLastModifiedTime(path).toMillis() + SEPARATOR + root.relativize(path));
+			}
+		}
+		return entries;
+	}
+}
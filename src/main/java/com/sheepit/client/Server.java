@@ -25,8 +25,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.net.*;
 import java.time.Duration;
@@ -35,7 +38,14 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.sheepit.client.datamodel.SpeedTestTarget;
@@ -85,6 +95,11 @@ import com.sheepit.client.os.OS;
 
 public class Server extends Thread {
 	private static final int NUMBER_OF_SPEEDTEST_RESULTS = 3;
+	private static final int HTTP_PARTIAL_CONTENT = 206;
+	private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+	private static final int DOWNLOAD_MAX_SEGMENTS = 4;
+	private static final long DOWNLOAD_MIN_SEGMENT_SIZE = 32L * 1024 * 1024; // under this size the extra connections cost more than they bring
+	private static final long DOWNLOAD_RESUME_SAVE_INTERVAL = 5000; // ms
 	
 	final private String HTTP_USER_AGENT = "Java/" + System.getProperty("java.version");
 	private String base_url;
@@ -125,45 +140,13 @@ public class Server extends Thread {
 			long current_time = new Date().getTime();
 			if ((current_time - this.lastRequestTime) > this.keepmealive_duration) {
 				try {
-					HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.getPage("keepmealive"))).newBuilder();
-					urlBuilder.addQueryParameter("paused", String.valueOf(this.client.isSuspended()));
-					
-					if (this.client != null && this.client.getRenderingJob() != null) {
-						Job job = this.client.getRenderingJob();
-						
-						urlBuilder.addQueryParameter("frame", job.getFrameNumber()).addQueryParameter("job", job.getId());
-						
-						RenderProcess process = job.getProcessRender();
-						if (process != null) {
-							urlBuilder.addQueryParameter("rendertime", String.valueOf(process.getDuration()))
-								.addQueryParameter("remainingtime", String.valueOf(process.getRemainingDuration()));
-						}
+					// one keepalive per render slot, each job is read once so a stop is applied to the job it was sent for
+					List<Job> jobs = this.client != null ? this.client.getRenderingJobs() : new ArrayList<>();
+					if (jobs.isEmpty()) {
+						this.keepAlive(null);
 					}
-					
-					Response response = this.HTTPRequest(urlBuilder);
-					
-					if (response.code() == HttpURLConnection.HTTP_OK && response.body().contentType().toString().startsWith("text/xml")) {
-						String in = response.body().string();
-						
-						try {
-							HeartBeatInfos heartBeatInfos = new Persister().read(HeartBeatInfos.class, in);
-							ServerCode serverCode = ServerCode.fromInt(heartBeatInfos.getStatus());
-							if (serverCode == ServerCode.KEEPMEALIVE_STOP_RENDERING) {
-								this.log.debug("Server::stayAlive server asked to kill local render process");
-								// kill the current process, it will generate an error but it's okay
-								if (this.client != null && this.client.getRenderingJob() != null) {
-									this.client.getRenderingJob().setServerBlockJob(true);
-									
-									if (this.client.getRenderingJob().getProcessRender().getProcess() != null) {
-										this.client.getRenderingJob().setAskForRendererKill(true);
-										OS.getOS().kill(this.client.getRenderingJob().getProcessRender().getProcess());
-									}
-								}
-							}
-						}
-						catch (Exception e) { // for the read
-							this.log.debug("Server::stayAlive Exception " + e);
-						}
+					for (Job job : jobs) {
+						this.keepAlive(job);
 					}
 				}
 				catch (NoRouteToHostException e) {
@@ -191,6 +174,50 @@ public class Server extends Thread {
 		}
 	}
 	
+	/**
+	 * @param job the job rendered by a slot, null if none
+	 */
+	private void keepAlive(Job job) throws IOException {
+		HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.getPage("keepmealive"))).newBuilder();
+		urlBuilder.addQueryParameter("paused", String.valueOf(this.client != null && this.client.isSuspended()));
+		
+		if (job != null) {
+			urlBuilder.addQueryParameter("frame", job.getFrameNumber()).addQueryParameter("job", job.getId());
+			
+			RenderProcess process = job.getProcessRender();
+			if (process != null) {
+				urlBuilder.addQueryParameter("rendertime", String.valueOf(process.getDuration()))
+					.addQueryParameter("remainingtime", String.valueOf(process.getRemainingDuration()));
+			}
+		}
+		
+		Response response = this.HTTPRequest(urlBuilder);
+		
+		if (response.code() == HttpURLConnection.HTTP_OK && response.body().contentType().toString().startsWith("text/xml")) {
+			String in = response.body().string();
+			
+			try {
+				HeartBeatInfos heartBeatInfos = new Persister().read(HeartBeatInfos.class, in);
+				ServerCode serverCode = ServerCode.fromInt(heartBeatInfos.getStatus());
+				if (serverCode == ServerCode.KEEPMEALIVE_STOP_RENDERING) {
+					this.log.debug("Server::stayAlive server asked to kill local render process");
+					// kill the process of the job, it will generate an error but it's okay
+					if (job != null) {
+						job.setServerBlockJob(true);
+						
+						if (job.getProcessRender().getProcess() != null) {
+							job.setAskForRendererKill(true);
+							job.getProcessRender().kill();
+						}
+					}
+				}
+			}
+			catch (Exception e) { // for the read
+				this.log.debug("Server::stayAlive Exception " + e);
+			}
+		}
+	}
+	
 	public String toString() {
 		return String.format("Server (base_url '%s', user_config %s", this.base_url, this.user_config);
 	}
@@ -272,7 +299,7 @@ public class Server extends Thread {
 		if (serverConfig.getSpeedTestTargets() != null && serverConfig.getSpeedTestTargets().isEmpty() == false) {
 			try {
 				client.getGui().status("Checking mirror connection speeds");
-				Speedtest speedtest = new Speedtest(log);
+				Speedtest speedtest = new Speedtest(log, new File(this.user_config.getStorageDir(), Speedtest.CACHE_FILENAME));
 				List<SpeedTestTarget> bestSpeedTestTargets = speedtest.doSpeedtests(serverConfig.getSpeedTestTargets().stream().map(m -> m.getUrl()).collect(Collectors.toList()),
 					NUMBER_OF_SPEEDTEST_RESULTS);
 				SpeedTestResult result = new SpeedTestResult();
@@ -312,12 +339,20 @@ public class Server extends Thread {
 	}
 	
 	public Job requestJob() throws FermeException {
+		return this.requestJob(this.user_config, this.client.getGui());
+	}
+	
+	/**
+	 * @param config configuration of the render slot asking for a job, the server picks a job for its cores and memory
+	 * @param gui gui showing the progress of the job
+	 */
+	public Job requestJob(Configuration config, Gui gui) throws FermeException {
 		this.log.debug("Server::requestJob");
 		String url_contents = "";
 		
 		try {
 			OS os = OS.getOS();
-			long maxMemory = this.user_config.getMaxAllowedMemory();
+			long maxMemory = config.getMaxAllowedMemory();
 			long freeMemory = os.getFreeMemory() - 1024^2 /*One gigabyte*/ * (os instanceof Windows ? 2 : 1); //Make RAM to reserve 2GB on Windows
 			if (maxMemory < 0) {
 				maxMemory = freeMemory;
@@ -327,18 +362,18 @@ public class Server extends Thread {
 			}
 			
 			HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.getPage("request-job"))).newBuilder()
-				.addQueryParameter("computemethod", String.valueOf(user_config.computeMethodToInt()))
+				.addQueryParameter("computemethod", String.valueOf(config.computeMethodToInt()))
 				.addQueryParameter("network_dl", String.valueOf(dlStats.getRawAverageSessionSpeed()))
 				.addQueryParameter("network_up", String.valueOf(ulStats.getRawAverageSessionSpeed()))
-				.addQueryParameter("cpu_cores", String.valueOf(user_config.getNbCores() == -1 ? os.getCPU().cores() :
-					(Math.max(user_config.getNbCores(), CPU.MIN_CORES))))
+				.addQueryParameter("cpu_cores", String.valueOf(config.getNbCores() == -1 ? os.getCPU().cores() :
+					(Math.max(config.getNbCores(), CPU.MIN_CORES))))
 				.addQueryParameter("ram_max", String.valueOf(maxMemory))
-				.addQueryParameter("rendertime_max", String.valueOf(user_config.getMaxRenderTime()));
+				.addQueryParameter("rendertime_max", String.valueOf(config.getMaxRenderTime()));
 			
-			if (user_config.getComputeMethod() != ComputeType.CPU && user_config.getGPUDevice() != null) {
-				urlBuilder.addQueryParameter("gpu_model", user_config.getGPUDevice().getModel())
-					.addQueryParameter("gpu_ram", String.valueOf(user_config.getGPUDevice().getMemory()))
-					.addQueryParameter("gpu_type", user_config.getGPUDevice().getType());
+			if (config.getComputeMethod() != ComputeType.CPU && config.getGPUDevice() != null) {
+				urlBuilder.addQueryParameter("gpu_model", config.getGPUDevice().getModel())
+					.addQueryParameter("gpu_ram", String.valueOf(config.getGPUDevice().getMemory()))
+					.addQueryParameter("gpu_type", config.getGPUDevice().getType());
 			}
 			
 			Response response = this.HTTPRequest(urlBuilder, RequestBody.create(this.generateXMLForMD5cache(), MediaType.parse("application/xml")));
@@ -398,7 +433,7 @@ public class Server extends Thread {
 
 			String validationUrl = URLDecoder.decode(jobData.getRenderTask().getValidationUrl(), "UTF-8");
 
-			return new Job(this.user_config, this.client.getGui(), this.client.getLog(), jobData.getRenderTask().getId(),
+			return new Job(config, gui, this.client.getLog(), jobData.getRenderTask().getId(),
 					jobData.getRenderTask().getFrame(), jobData.getRenderTask().getPath().replace("/", File.separator),
 					jobData.getRenderTask().getUseGpu() == 1, jobData.getRenderTask().getRendererInfos().getCommandline(), validationUrl,
 					jobData.getRenderTask().getScript(), jobData.getRenderTask().getArchive_md5(), jobData.getRenderTask().getRendererInfos().getMd5(),
@@ -487,59 +522,123 @@ public class Server extends Thread {
 		}
 	}
 	
-	public Error.Type HTTPGetFile(String url_, String destination_, Gui gui_, String status_) throws FermeException {
-		InputStream is = null;
-		OutputStream output = null;
-
+	/**
+	 * @param job_ job needing the archive, the download stops if the job gets blocked
+	 * @param gui_ gui showing the progress, can be null for a download done in the background
+	 */
+	public Error.Type HTTPGetFile(String url_, String destination_, String md5_, Job job_, Gui gui_, String status_) throws FermeException {
+		File partialFile = new File(destination_ + PartialDownload.PARTIAL_EXTENSION);
+		PartialDownload partial = null;
+		DownloadDigest digest = null;
+		boolean completed = false;
+		
 		try {
-			Response response = this.HTTPRequest(url_);
-			
-			if (response.code() != HttpURLConnection.HTTP_OK) {
-				this.log.error("Server::HTTPGetFile(" + url_ + ", ...) HTTP code is not " + HttpURLConnection.HTTP_OK + " it's " + response.code());
-				return Error.Type.DOWNLOAD_FILE;
-			}
-			
-			is = response.body().byteStream();
-			output = new FileOutputStream(destination_ + ".partial");
-			
-			long size = response.body().contentLength();
-			byte[] buffer = new byte[8 * 1024];
-			int len = 0;
-			long written = 0;
-			long lastUpd = 0;    // last GUI progress update
-			
 			LocalDateTime startRequestTime = LocalDateTime.now();
+			AtomicLong written = new AtomicLong(0); // bytes received by this call, the already downloaded part of a resumed archive is not counted
+			Response response = null;
+			long size = -1;
 			
-			while ((len = is.read(buffer)) != -1) {
-				if (this.client.getRenderingJob().isServerBlockJob()) {
-					return Error.Type.RENDERER_KILLED_BY_SERVER;
+			partial = PartialDownload.load(destination_, md5_);
+			if (partial != null && partial.isComplete() == false) {
+				PartialDownload.Segment segment = partial.getIncompleteSegments().get(0);
+				response = this.HTTPRangeRequest(url_, segment.getPosition(), segment.end);
+				if (response.code() != HTTP_PARTIAL_CONTENT || getContentRangeLength(response) != partial.getSize()) {
+					this.log.debug("Server::HTTPGetFile unable to resume " + destination_ + " (HTTP code " + response.code() + "), downloading it from the start");
+					response.close();
+					response = null;
+					partial.discard();
+					partial = null;
 				}
-				else if (this.client.getRenderingJob().isUserBlockJob()) {
-					return Error.Type.RENDERER_KILLED_BY_USER;
+				else {
+					this.log.debug(String.format("Server::HTTPGetFile resuming %s at %d/%d bytes", destination_, partial.getWritten(), partial.getSize()));
+					partial.setUrl(url_);
 				}
+			}
+			
+			if (partial == null) {
+				// Ask for the whole archive as a range, the answer tells if the server is able to serve it over several connections
+				response = this.HTTPRangeRequest(url_, 0, -1);
 				
-				output.write(buffer, 0, len);
-				written += len;
+				if (response.code() == HTTP_PARTIAL_CONTENT) {
+					size = getContentRangeLength(response);
+				}
+				else if (response.code() == HttpURLConnection.HTTP_OK) {
+					size = response.body().contentLength();
+				}
+				else {
+					this.log.error("Server::HTTPGetFile(" + url_ + ", ...) HTTP code is not " + HttpURLConnection.HTTP_OK + " it's " + response.code());
+					response.close();
+					return Error.Type.DOWNLOAD_FILE;
+				}
 				
-				if ((written - lastUpd) > 1000000) { // only update the gui every 1MB
-					if (size != -1) { // no header for contentlength
-						gui_.status(status_, (int) (100.0 * written / size), written);
+				if (response.code() == HTTP_PARTIAL_CONTENT && size > 0) {
+					partial = new PartialDownload(destination_, url_, md5_, size, this.planSegments(size));
+				}
+			}
+			
+			// make room for the archive before downloading it, rather than failing once the disk is full
+			long remaining = partial != null ? partial.getSize() - partial.getWritten() : size;
+			if (remaining > 0 && this.client.reserveCacheSpace(job_, new File(destination_), remaining, this.dlStats.getRawAverageSessionSpeed()) == false) {
+				response.close();
+				throw new FermeExceptionNoSpaceLeftOnDevice();
+			}
+			
+			Error.Type ret;
+			if (partial == null) {
+				// the server does not support ranges (or does not give the size), the archive can neither be split nor resumed
+				digest = new DownloadDigest(null, size);
+				ret = this.downloadStream(response, partialFile, size, written, digest, job_, gui_, status_);
+			}
+			else if (partial.isComplete()) {
+				// the previous run was stopped between the last byte and the rename
+				ret = Error.Type.OK;
+			}
+			else {
+				try {
+					// the already downloaded part of a resumed archive is read back once by the digest, the rest is hashed as it arrives
+					digest = new DownloadDigest(partial.getSegments(), partial.getSize());
+					ret = this.downloadSegments(url_, response, partial, partialFile, written, digest, job_, gui_, status_);
+				}
+				catch (RangeNotSupportedException e) {
+					this.log.debug("Server::HTTPGetFile " + e.getMessage() + ", falling back to a single connection");
+					partial.discard();
+					partial = null;
+					written.set(0);
+					response = this.HTTPRequest(url_);
+					if (response.code() != HttpURLConnection.HTTP_OK) {
+						this.log.error("Server::HTTPGetFile(" + url_ + ", ...) HTTP code is not " + HttpURLConnection.HTTP_OK + " it's " + response.code());
+						response.close();
+						return Error.Type.DOWNLOAD_FILE;
 					}
-					lastUpd = written;
+					digest = new DownloadDigest(null, response.body().contentLength());
+					ret = this.downloadStream(response, partialFile, response.body().contentLength(), written, digest, job_, gui_, status_);
 				}
 			}
 			
+			if (ret != Error.Type.OK) {
+				return ret;
+			}
+			
+			completed = true;
+			size = partialFile.length();
+			
 			LocalDateTime endRequestTime = LocalDateTime.now();
 			Duration duration = Duration.between(startRequestTime, endRequestTime);
-			this.dlStats.calc(written, ((duration.getSeconds() * 1000) + (duration.getNano() / 1000000)));
-			gui_.displayTransferStats(dlStats, ulStats);
-			gui_.status(status_, 100, size);
+			this.dlStats.calc(written.get(), ((duration.getSeconds() * 1000) + (duration.getNano() / 1000000)));
+			if (gui_ != null) {
+				gui_.displayTransferStats(dlStats, ulStats);
+				gui_.status(status_, 100, size);
+			}
+			
+			this.log.debug(String.format("File downloaded at %s/s, written %d bytes", new TransferStats(written.get(), duration.getSeconds() + 1).getAverageSessionSpeed(),
+				written.get()));
 			
-			this.log.debug(String.format("File downloaded at %s/s, written %d bytes", new TransferStats(size, duration.getSeconds() + 1).getAverageSessionSpeed(), written));
-
 			this.lastRequestTime = new Date().getTime();
 			return Error.Type.OK;
 		}
+		catch (FermeExceptionNoSpaceLeftOnDevice e) {
+			throw e;
+		}
 		catch (Exception e) {
 			File destFile = new File(destination_);
 			if (Files.isWritable(destFile.getParentFile().toPath()) == false) {
@@ -557,29 +656,27 @@ public class Server extends Thread {
 			this.log.error("Server::HTTPGetFile Exception " + e + " stacktrace " + sw.toString());
 		}
 		finally {
-			try {
-				if (output != null) {
-					output.flush();
-					output.close();
-				}
+			if (completed) {
+				// Rename file (or directory)
+				boolean success = partialFile.renameTo(new File(destination_));
 				
-				File downloadedFile = new File(destination_ + ".partial");
-				
-				if (downloadedFile.exists()) {
-					// Rename file (or directory)
-					boolean success = downloadedFile.renameTo(new File(destination_));
-					
-					if (!success) {
-						this.log.debug(String.format("Server::HTTPGetFile Error trying to rename the downloaded file to final name (%s)", destination_));
+				if (!success) {
+					this.log.debug(String.format("Server::HTTPGetFile Error trying to rename the downloaded file to final name (%s)", destination_));
+				}
+				else if (digest != null) {
+					// the archive was hashed while downloaded, the md5 check will not have to read it again
+					String md5 = digest.getMd5();
+					if (md5 != null) {
+						this.user_config.getChecksumIndex().put(new File(destination_), md5);
 					}
 				}
-
-				if (is != null) {
-					is.close();
+				if (partial != null) {
+					partial.discard();
 				}
 			}
-			catch (Exception e) {
-				this.log.debug(String.format("Server::HTTPGetFile Error trying to close the open streams (%s)", e.getMessage()));
+			else if (partial == null) {
+				// nothing to resume from
+				partialFile.delete();
 			}
 		}
 		
@@ -587,6 +684,222 @@ public class Server extends Thread {
 		return Error.Type.DOWNLOAD_FILE;
 	}
 	
+	/**
+	 * Copy the whole body of the response into the file, on the calling thread
+	 */
+	private Error.Type downloadStream(Response response, File partialFile, long size, AtomicLong written, DownloadDigest digest, Job job_, Gui gui_,
+		String status_) throws IOException {
+		try (Response r = response; InputStream is = r.body().byteStream(); OutputStream output = new FileOutputStream(partialFile)) {
+			byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+			int len = 0;
+			long lastUpd = 0;    // last GUI progress update
+			
+			while ((len = is.read(buffer)) != -1) {
+				Error.Type interruption = this.downloadInterruption(job_);
+				if (interruption != null) {
+					return interruption;
+				}
+				
+				output.write(buffer, 0, len);
+				long total = written.addAndGet(len);
+				digest.update(null, total - len, buffer, len);
+				
+				if ((total - lastUpd) > 1000000) { // only update the gui every 1MB
+					if (size != -1 && gui_ != null) { // no header for contentlength
+						gui_.status(status_, (int) (100.0 * total / size), total);
+					}
+					lastUpd = total;
+				}
+			}
+		}
+		return Error.Type.OK;
+	}
+	
+	/**
+	 * Split the archive in byte ranges, big archives get several connections
+	 */
+	private List<PartialDownload.Segment> planSegments(long size) {
+		int count = (int) Math.max(1, Math.min(DOWNLOAD_MAX_SEGMENTS, size / DOWNLOAD_MIN_SEGMENT_SIZE));
+		long segmentSize = size / count;
+		List<PartialDownload.Segment> segments = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			long start = i * segmentSize;
+			long end = (i == count - 1) ? size - 1 : start + segmentSize - 1;
+			segments.add(new PartialDownload.Segment(i, start, end, 0));
+		}
+		return segments;
+	}
+	
+	/**
+	 * Download the missing byte ranges of the archive concurrently, each one written at its own offset of the preallocated partial file.
+	 * The first response (a range starting at the position of the first incomplete segment) is reused for that segment.
+	 * The progress is recorded every few seconds and when the download stops, so it can be resumed.
+	 *
+	 * @throws RangeNotSupportedException if the server answers a range request with the full content
+	 */
+	private Error.Type downloadSegments(String url_, Response firstResponse, PartialDownload partial, File partialFile, AtomicLong written,
+		DownloadDigest digest, Job job_, Gui gui_, String status_) throws IOException, InterruptedException {
+		List<PartialDownload.Segment> segments = partial.getIncompleteSegments();
+		AtomicBoolean abort = new AtomicBoolean(false);
+		ExecutorService pool = Executors.newFixedThreadPool(segments.size());
+		try (RandomAccessFile file = new RandomAccessFile(partialFile, "rw"); FileChannel channel = file.getChannel()) {
+			if (file.length() != partial.getSize()) {
+				file.setLength(partial.getSize());
+			}
+			partial.save(null);
+			
+			try {
+				List<Future<Void>> futures = new ArrayList<>(segments.size());
+				for (PartialDownload.Segment segment : segments) {
+					Response response = segment == segments.get(0) ? firstResponse : null;
+					futures.add(pool.submit(() -> {
+						this.downloadSegment(url_, response, segment, channel, written, digest, abort);
+						return null;
+					}));
+				}
+				
+				long lastUpd = 0;    // last GUI progress update
+				long lastSave = System.currentTimeMillis();
+				for (Future<Void> future : futures) {
+					while (true) {
+						try {
+							future.get(500, TimeUnit.MILLISECONDS);
+							break;
+						}
+						catch (TimeoutException e) {
+							Error.Type interruption = this.downloadInterruption(job_);
+							if (interruption != null) {
+								abort.set(true);
+								return interruption;
+							}
+							
+							long total = partial.getWritten();
+							if ((total - lastUpd) > 1000000 && gui_ != null) { // only update the gui every 1MB
+								gui_.status(status_, (int) (100.0 * total / partial.getSize()), total);
+								lastUpd = total;
+							}
+							
+							// also refreshed when nothing was received, it tells the other clients sharing the directory that the download is still alive
+							if (System.currentTimeMillis() - lastSave > DOWNLOAD_RESUME_SAVE_INTERVAL) {
+								partial.save(channel);
+								lastSave = System.currentTimeMillis();
+							}
+						}
+						catch (ExecutionException e) {
+							abort.set(true);
+							if (e.getCause() instanceof IOException) {
+								throw (IOException) e.getCause();
+							}
+							throw new IOException(e.getCause());
+						}
+					}
+				}
+				digest.catchUp(channel);
+			}
+			finally {
+				if (partial.isComplete() == false) {
+					partial.save(channel);
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		
+		return Error.Type.OK;
+	}
+	
+	private void downloadSegment(String url_, Response response, PartialDownload.Segment segment, FileChannel channel, AtomicLong written,
+		DownloadDigest digest, AtomicBoolean abort) throws IOException {
+		long startTime = System.currentTimeMillis();
+		if (response == null) {
+			response = this.HTTPRangeRequest(url_, segment.getPosition(), segment.end);
+			if (response.code() != HTTP_PARTIAL_CONTENT) {
+				response.close();
+				throw new RangeNotSupportedException("server answered a range request with HTTP code " + response.code());
+			}
+		}
+		
+		long received = 0;
+		try (Response r = response; InputStream is = r.body().byteStream()) {
+			byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+			ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+			long position = segment.getPosition();
+			
+			while (position <= segment.end && abort.get() == false) {
+				int len = is.read(buffer, 0, (int) Math.min(buffer.length, segment.end - position + 1));
+				if (len == -1) {
+					throw new IOException("connection closed before the end of segment " + segment.index + " (at byte " + position + ")");
+				}
+				
+				long chunkPosition = position;
+				wrapper.clear();
+				wrapper.limit(len);
+				while (wrapper.hasRemaining()) {
+					position += channel.write(wrapper, position);
+				}
+				// only counted once on the disk, a saved progress never covers bytes which were not written
+				segment.written += len;
+				received += len;
+				written.addAndGet(len);
+				digest.update(channel, chunkPosition, buffer, len);
+			}
+		}
+		
+		if (segment.isComplete()) {
+			this.log.debug(String.format("Server::HTTPGetFile segment %d (%d-%d) downloaded at %s/s", segment.index, segment.start, segment.end,
+				new TransferStats(received, Math.max(System.currentTimeMillis() - startTime, 1)).getAverageSessionSpeed()));
+		}
+	}
+	
+	/**
+	 * @return the reason to stop the download of the job archives, null if the download can continue
+	 */
+	private Error.Type downloadInterruption(Job job) {
+		if (job != null && job.isServerBlockJob()) {
+			return Error.Type.RENDERER_KILLED_BY_SERVER;
+		}
+		else if (job != null && job.isUserBlockJob()) {
+			return Error.Type.RENDERER_KILLED_BY_USER;
+		}
+		return null;
+	}
+	
+	/**
+	 * @param to last byte of the range (inclusive), negative to ask everything after <code>from</code>
+	 */
+	private Response HTTPRangeRequest(String url, long from, long to) throws IOException {
+		String range = "bytes=" + from + "-" + (to >= 0 ? String.valueOf(to) : "");
+		Request request = new Request.Builder().addHeader("User-Agent", HTTP_USER_AGENT).addHeader("Range", range).url(url).build();
+		
+		this.log.debug("Server::HTTPRangeRequest url(" + url + ") range(" + range + ")");
+		
+		try {
+			Response response = httpClient.newCall(request).execute();
+			this.lastRequestTime = new Date().getTime();
+			return response;
+		}
+		catch (IOException e) {
+			throw new IOException("Unexpected response from HTTP Stack" + e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return the total size given by a "Content-Range: bytes 0-99/1234" header, -1 if unknown
+	 */
+	private static long getContentRangeLength(Response response) {
+		String contentRange = response.header("Content-Range");
+		if (contentRange == null || contentRange.indexOf('/') == -1) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1).trim());
+		}
+		catch (NumberFormatException e) { // "*" when the size is unknown
+			return -1;
+		}
+	}
+	
 	public ServerCode HTTPSendFile(String surl, String file1, int checkpoint, Gui gui) {
 		this.log.debug(checkpoint, "Server::HTTPSendFile(" + surl + "," + file1 + ")");
 		
@@ -716,6 +1029,14 @@ public class Server extends Thread {
 		}
 	}
 	
+	private boolean isRendererUsed(Job job, String md5) {
+		return job != null && md5.equals(job.getRendererMD5());
+	}
+	
+	private boolean isSceneUsed(Job job, String md5) {
+		return job != null && md5.equals(job.getSceneMD5());
+	}
+	
 	private void handleFileMD5DeleteDocument(List<FileMD5> fileMD5s) {
 		if (fileMD5s != null && fileMD5s.isEmpty() == false) {
 			for (FileMD5 fileMD5 : fileMD5s) {
@@ -724,14 +1045,39 @@ public class Server extends Thread {
 					this.log.debug("Server::handleFileMD5DeleteDocument delete old file " + path);
 					File file_to_delete = new File(path + ".zip");
 					file_to_delete.delete();
+					this.user_config.getChecksumIndex().remove(file_to_delete);
+					PartialDownload.delete(path + ".zip");
 					Utils.delete(new File(path));
 					
+					// the links to the archive and the extracted scene in the working directories of the render slots
+					for (RenderSlot slot : this.client.getRenderSlots()) {
+						if (slot.getConfiguration() != this.user_config) {
+							String slotPath = slot.getConfiguration().getWorkingDirectory().getAbsolutePath() + File.separatorChar + fileMD5.getMd5();
+							new File(slotPath + ".zip").delete();
+							Utils.delete(new File(slotPath));
+						}
+					}
+					
+					// an extracted renderer still used by a current or the prefetched job is kept, the next cache cleanup will remove it
+					if (this.client.getRenderingJobs().stream().noneMatch(job -> this.isRendererUsed(job, fileMD5.getMd5()))
+						&& this.isRendererUsed(this.client.getPrefetchedJob(), fileMD5.getMd5()) == false) {
+						this.user_config.getRendererCache().remove(fileMD5.getMd5());
+					}
+					
+					// same for the extracted scene, the views of the current jobs do not depend on it
+					if (this.client.getRenderingJobs().stream().noneMatch(job -> this.isSceneUsed(job, fileMD5.getMd5()))
+						&& this.isSceneUsed(this.client.getPrefetchedJob(), fileMD5.getMd5()) == false) {
+						this.user_config.getSceneCache().remove(fileMD5.getMd5());
+					}
+					
 					// If we are using a shared downloads directory, then delete the file from the shared downloads directory as well :)
 					if (this.user_config.getSharedDownloadsDirectory() != null) {
 						String commonCacheFile = this.user_config.getSharedDownloadsDirectory().getAbsolutePath() + File.separatorChar + fileMD5.getMd5();
 						this.log.debug("Server::handleFileMD5DeleteDocument delete common file " + commonCacheFile + ".zip");
 						file_to_delete = new File(commonCacheFile + ".zip");
 						file_to_delete.delete();
+						this.user_config.getChecksumIndex().remove(file_to_delete);
+						PartialDownload.delete(commonCacheFile + ".zip");
 					}
 				}
 			}
@@ -777,4 +1123,12 @@ public class Server extends Thread {
 			throw new RuntimeException(e);
 		}
 	}
+	
+	private static class RangeNotSupportedException extends IOException {
+		private static final long serialVersionUID = 1L;
+		
+		private RangeNotSupportedException(String message) {
+			super(message);
+		}
+	}
 }
@@ -107,6 +107,15 @@ public class SettingsLoader {
 	public static final String ARG_THEME = "-theme";
 	public static final String ARG_HOSTNAME = "-hostname";
 	public static final String ARG_HEADLESS = "--headless";
+	public static final String ARG_PREFETCH = "-prefetch";
+	public static final String ARG_CGROUP = "--cgroup";
+	public static final String ARG_CPU_PLACEMENT = "-cpu-placement";
+	public static final String ARG_SLOTS = "-slots";
+	public static final String ARG_WARM_RENDERER = "--warm-renderer";
+	public static final String ARG_CACHE_QUOTA = "-cache-quota";
+	public static final String ARG_ARCHIVE_MAX_SIZE = "-archive-max-size";
+	public static final String ARG_ARCHIVE_MAX_AGE = "-archive-max-age";
+	public static final String ARG_ARCHIVE_MAX_FILES = "-archive-max-files";
 	
 	
 	private String path;
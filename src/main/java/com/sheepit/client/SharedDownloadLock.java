@@ -0,0 +1,266 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+
+/****************
+ * Ownership of the download of an archive of the shared downloads directory, between the clients using the same directory.
+ * The owner holds an advisory lock on a small file next to the archive. The lock is released by the os as soon as the owner process exits, so a crashed
+ * client never blocks the others. The clients waiting for the archive are woken up by a watch on the directory when the archive appears. A client
+ * waits at most 30 minutes, like the previous .partial file polling, then downloads the archive itself.
+ */
+public class SharedDownloadLock {
+	public static final String LOCK_EXTENSION = ".lock";
+	public static final long DEFAULT_TIMEOUT = 1800000; // 30 minutes
+	
+	private static final String TAKEOVER_EXTENSION = ".takeover";
+	private static final long RETRY_DELAY = 2000; // the release of the lock by a dead process does not generate any event on the directory
+	private static final long TAKEOVER_TIMEOUT = 60000; // a takeover file older than this was left by a client which died during the takeover
+	
+	public enum Result {
+		OWNER, // this client downloads the archive, release() must be called
+		AVAILABLE, // the archive has been downloaded by another client
+		TIMEOUT, // another client is still downloading the archive
+		STOPPED, // the client is stopping
+	}
+	
+	private final String destination;
+	private final File lockFile;
+	private final Log log;
+	private FileChannel channel;
+	private FileLock lock;
+	
+	public SharedDownloadLock(String destination, Log log) {
+		this.destination = destination;
+		this.lockFile = new File(destination + LOCK_EXTENSION);
+		this.log = log;
+		this.channel = null;
+		this.lock = null;
+	}
+	
+	/**
+	 * Wait until the archive has been downloaded by another client, or until this client is the one which has to download it
+	 *
+	 * @param status called every few seconds with the owner of the download while waiting, can be null
+	 * @param timeout in ms
+	 * @param running checked while waiting, the wait ends as soon as it returns false
+	 */
+	public Result acquire(StatusListener status, long timeout, BooleanSupplier running) throws IOException, InterruptedException {
+		File archive = new File(this.destination);
+		Path directory = archive.getAbsoluteFile().getParentFile().toPath();
+		long end = System.currentTimeMillis() + timeout;
+		long lastStatus = 0;
+		String deadOwner = null;
+		
+		try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+			directory.register(watcher, ENTRY_CREATE, ENTRY_DELETE);
+			
+			while (true) {
+				if (archive.exists()) {
+					return Result.AVAILABLE;
+				}
+				
+				if (this.tryLock()) {
+					// the previous owner renames the archive before releasing the lock
+					if (archive.exists()) {
+						this.release(false);
+						return Result.AVAILABLE;
+					}
+					return Result.OWNER;
+				}
+				
+				if (running.getAsBoolean() == false) {
+					return Result.STOPPED;
+				}
+				if (System.currentTimeMillis() >= end) {
+					return Result.TIMEOUT;
+				}
+				
+				String owner = this.getOwner();
+				if (this.isOwnerDead(owner)) {
+					// the lock of a dead process is still held, it happens with some network file systems. Only broken if seen twice, a new owner might
+					// not have written its pid yet.
+					if (owner.equals(deadOwner)) {
+						this.takeOver(owner);
+						deadOwner = null;
+						continue;
+					}
+					deadOwner = owner;
+				}
+				else {
+					deadOwner = null;
+				}
+				
+				if (status != null && System.currentTimeMillis() - lastStatus > 10000) {
+					lastStatus = System.currentTimeMillis();
+					status.waiting(owner);
+				}
+				
+				WatchKey key = watcher.poll(RETRY_DELAY, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					key.pollEvents(); // the events only wake up the loop, the archive and the lock are checked again anyway
+					key.reset();
+				}
+			}
+		}
+		catch (ClosedWatchServiceException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	/**
+	 * Remove the lock file of a dead owner. The clients seeing the owner dead at the same time take over one after the other: only the one which
+	 * creates the takeover file (an atomic creation) checks the owner again and removes the lock file, so the lock of a new owner is never removed.
+	 */
+	private void takeOver(String owner) {
+		Path takeover = new File(this.lockFile.getAbsolutePath() + TAKEOVER_EXTENSION).toPath();
+		try {
+			Files.createFile(takeover);
+		}
+		catch (FileAlreadyExistsException e) {
+			try {
+				if (System.currentTimeMillis() - Files.getLastModifiedTime(takeover).toMillis() > TAKEOVER_TIMEOUT) {
+					Files.deleteIfExists(takeover);
+				}
+			}
+			catch (IOException ignored) {
+				// removed by its client meanwhile
+			}
+			return;
+		}
+		catch (IOException e) {
+			this.log.debug("SharedDownloadLock::takeOver unable to create " + takeover + " (" + e + ")");
+			return;
+		}
+		
+		try {
+			if (owner.equals(this.getOwner())) {
+				this.log.debug("SharedDownloadLock::takeOver owner " + owner + " of " + this.lockFile.getName() + " is not running, removing its lock");
+				this.lockFile.delete();
+			}
+		}
+		finally {
+			try {
+				Files.deleteIfExists(takeover);
+			}
+			catch (IOException e) {
+				this.log.debug("SharedDownloadLock::takeOver unable to remove " + takeover + " (" + e + ")");
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the lock has been taken by this client
+	 */
+	public synchronized boolean tryLock() throws IOException {
+		if (this.lock != null) {
+			return true;
+		}
+		
+		this.channel = FileChannel.open(this.lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			this.lock = this.channel.tryLock();
+		}
+		catch (OverlappingFileLockException e) {
+			this.lock = null; // held by another thread of this client
+		}
+		
+		if (this.lock == null) {
+			this.channel.close();
+			this.channel = null;
+			return false;
+		}
+		
+		// record the owner, for the other clients and for the detection of a stale lock
+		this.channel.truncate(0);
+		this.channel.write(ByteBuffer.wrap((ProcessHandle.current().pid() + "@" + getLocalHostname()).getBytes(StandardCharsets.UTF_8)), 0);
+		this.channel.force(false);
+		return true;
+	}
+	
+	/**
+	 * @param completed true if the archive is now available, the lock file is removed. Otherwise it is kept so a waiting client can take the lock over.
+	 */
+	public synchronized void release(boolean completed) {
+		if (this.lock == null) {
+			return;
+		}
+		
+		try {
+			this.lock.release();
+			this.channel.close();
+		}
+		catch (IOException e) {
+			this.log.debug("SharedDownloadLock::release failed to release " + this.lockFile.getAbsolutePath() + " (" + e + ")");
+		}
+		this.lock = null;
+		this.channel = null;
+		
+		if (completed) {
+			// a client taking the lock in between finds the archive and releases it right away
+			this.lockFile.delete();
+		}
+	}
+	
+	/**
+	 * @return the owner of the download as "pid@hostname", an empty string if unknown
+	 */
+	public String getOwner() {
+		try {
+			return new String(Files.readAllBytes(this.lockFile.toPath()), StandardCharsets.UTF_8).trim();
+		}
+		catch (IOException e) {
+			return "";
+		}
+	}
+	
+	/**
+	 * The pid can only be checked if the owner runs on the same computer
+	 */
+	private boolean isOwnerDead(String owner) {
+		int separator = owner.indexOf('@');
+		if (separator <= 0 || owner.substring(separator + 1).equals(getLocalHostname()) == false) {
+			return false;
+		}
+		
+		try {
+			long pid = Long.parseLong(owner.substring(0, separator));
+			return pid != ProcessHandle.current().pid() && ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false) == false;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+	
+	private static String getLocalHostname() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		}
+		catch (UnknownHostException e) {
+			return "";
+		}
+	}
+	
+	public interface StatusListener {
+		void waiting(String owner);
+	}
+}
@@ -2,33 +2,71 @@ package com.sheepit.client;
 
 import com.sheepit.client.datamodel.SpeedTestTarget;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.NetworkInterface;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 public class Speedtest {
 	public static final int PORT = 443;
+	public static final String CACHE_FILENAME = "sheepit_speedtest.txt";
 	private static final Comparator<SpeedTestTarget> ORDERED = Comparator.comparing(speedTestTarget -> speedTestTarget.getPing().getAverage());
 	
+	private static final int PING_COUNT = 12;
+	private static final int PING_TIMEOUT = 3000; // ms, a mirror which does not answer is not tried again
+	private static final long PING_BUDGET = 15000; // ms, for all the mirrors
+	private static final int MAX_PROBES = 16; // mirrors pinged at the same time
+	private static final int SPARE_MIRRORS = 1; // pinged mirrors kept in case the download from one of the best ones fails
+	private static final long DOWNLOAD_TIME_LIMIT = 5000; // ms, the speed is measured on what has been downloaded by then
+	private static final long CACHE_TTL = 24 * 3600 * 1000L; // ms
+	private static final String SEPARATOR = "\t";
+	
 	private Log log;
+	private File cacheFile; // null when the results are not kept
 	
 	public Speedtest(Log log) {
+		this(log, null);
+	}
+	
+	public Speedtest(Log log, File cacheFile) {
 		this.log = log;
+		this.cacheFile = cacheFile;
 	}
 	
 	/**
+	 * The mirrors are pinged at the same time, the ones answering first are the closest: once enough of them are known the others are not waited for.
+	 * Their payloads are then downloaded one after the other, so the downloads do not share the bandwidth. The results are kept for a day on the same
+	 * network.
+	 *
 	 * @param urls the urls to the speedtest payloads
 	 * @param numberOfResults number of best mirrors to return
 	 *
@@ -36,17 +74,17 @@ public class Speedtest {
 	 * if <code>numberOfResults > urls.size()</code>
 	 */
 	public List<SpeedTestTarget> doSpeedtests(List<String> urls, int numberOfResults) {
-		
-		List<SpeedTestTarget> pingResult = (urls
-			.stream()
-			.map(this::measure)
-			.filter(target -> target.getPing().getAverage() > 0)
-			.sorted(ORDERED)
-			.collect(Collectors.toList())
-		);
+		String fingerprint = this.getFingerprint(urls);
+		List<SpeedTestTarget> cached = this.readCache(fingerprint);
+		if (cached != null) {
+			this.log.debug("Speedtest::doSpeedtests results of " + new Date(this.cacheFile.lastModified()) + " are still valid on this network");
+			return cached;
+		}
 		
 		numberOfResults = Math.min(numberOfResults, urls.size());
 		
+		List<SpeedTestTarget> pingResult = this.measureAll(urls, numberOfResults + SPARE_MIRRORS);
+		
 		List<SpeedTestTarget> result = new ArrayList<>(numberOfResults);
 		
 		int i = 0;
@@ -55,7 +93,7 @@ public class Speedtest {
 			try {
 				var speedtestResult = runTimed(() -> speedtest(m.getUrl()));
 				m.setSpeedtest(
-					Math.round(speedtestResult.second / (speedtestResult.first / (double) 1000L))	// number of bytes / time in seconds
+					Math.round(speedtestResult.second / (Math.max(1, speedtestResult.first) / (double) 1000L))	// number of bytes / time in seconds
 				);
 			}
 			catch (Exception e) {
@@ -68,27 +106,70 @@ public class Speedtest {
 		}
 		
 		result.sort(Comparator.comparing(SpeedTestTarget::getSpeedtest).reversed());
+		if (result.isEmpty() == false) {
+			this.writeCache(fingerprint, result);
+		}
 		return result;
 	}
 	
-	private SpeedTestTarget measure(String mirror) {
-		long pingCount = 12;
+	/**
+	 * @param wanted number of reachable mirrors after which the slower ones are not waited for
+	 * @return the reachable mirrors, the closest first
+	 */
+	private List<SpeedTestTarget> measureAll(List<String> urls, int wanted) {
+		List<SpeedTestTarget> pingResult = new ArrayList<>();
+		if (urls.isEmpty()) {
+			return pingResult;
+		}
 		
-		LongStream.Builder streamBuilder = LongStream.builder();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(urls.size(), MAX_PROBES), runnable -> {
+			Thread thread = new Thread(runnable, "Speedtest ping");
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<SpeedTestTarget> completion = new ExecutorCompletionService<>(executor);
+		try {
+			for (String url : urls) {
+				completion.submit(() -> measure(url));
+			}
+			
+			long deadline = System.currentTimeMillis() + PING_BUDGET;
+			for (int done = 0; done < urls.size() && pingResult.size() < wanted; done++) {
+				Future<SpeedTestTarget> future = completion.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				if (future == null) {
+					this.log.debug("Speedtest::measureAll time is over, " + (urls.size() - done) + " mirror(s) not measured");
+					break;
+				}
+				SpeedTestTarget target = future.get();
+				if (target.getPing().getCount() > 0) {
+					pingResult.add(target);
+				}
+			}
+		}
+		catch (InterruptedException | ExecutionException e) {
+			this.log.error("Speedtest::measureAll Exception " + e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		pingResult.sort(ORDERED);
+		return pingResult;
+	}
+	
+	private SpeedTestTarget measure(String mirror) {
+		LongSummaryStatistics pingStatistics = new LongSummaryStatistics();
 		
-		for (int i = 0; i < pingCount; i++) {
+		for (int i = 0; i < PING_COUNT && Thread.currentThread().isInterrupted() == false; i++) {
 			try {
-				streamBuilder.add(runTimed(() -> ping(mirror, PORT)).first);
+				pingStatistics.accept(runTimed(() -> ping(mirror, PORT)).first);
 			}
 			catch (Exception e) {
 				this.log.error("Speedtest::ping Exception " + e);
-				pingCount /= 2;
-				streamBuilder.add(Long.MAX_VALUE);
+				return new SpeedTestTarget(mirror, -1, new LongSummaryStatistics()); // unreachable, no ping
 			}
 		}
 		
-		var pingStatistics = streamBuilder.build().summaryStatistics();
-		
 		return new SpeedTestTarget(mirror, -1, pingStatistics);
 	}
 	
@@ -108,13 +189,28 @@ public class Speedtest {
 	}
 	
 	/**
-	 * Downloads a payload from the given url and returns the number of downloaded bytes
+	 * Downloads a payload from the given url, for at most DOWNLOAD_TIME_LIMIT, and returns the number of downloaded bytes. The payload is not kept.
 	 * @param url the url pointing at the speedtest file
 	 * @return the number of bytes read
 	 */
-	private int speedtest(String url) {
-		try (InputStream stream = new URL(url).openStream()) {
-			return stream.readAllBytes().length;
+	private long speedtest(String url) {
+		try {
+			URLConnection connection = new URL(url).openConnection();
+			connection.setConnectTimeout(PING_TIMEOUT);
+			connection.setReadTimeout((int) DOWNLOAD_TIME_LIMIT);
+			try (InputStream stream = connection.getInputStream()) {
+				byte[] buffer = new byte[64 * 1024];
+				long total = 0;
+				long end = System.currentTimeMillis() + DOWNLOAD_TIME_LIMIT;
+				int read;
+				while ((read = stream.read(buffer)) != -1) {
+					total += read;
+					if (System.currentTimeMillis() > end) {
+						break;
+					}
+				}
+				return total;
+			}
 		}
 		catch (MalformedURLException e) {
 			throw new RuntimeException("Invalid speedtest URL: " + url, e);
@@ -129,8 +225,7 @@ public class Speedtest {
 		try (Socket socket = new Socket()) {
 			mirrorIP = InetAddress.getByName(new URL(url).getHost());
 			SocketAddress socketAddress = new InetSocketAddress(mirrorIP, port);
-			int maxWaitingTime_ms = 3000;
-			socket.connect(socketAddress, maxWaitingTime_ms);
+			socket.connect(socketAddress, PING_TIMEOUT);
 		}
 		catch (IOException e) {
 			String problemURL = mirrorIP != null ? mirrorIP + " (derived from: " + url + ")" : url;
@@ -138,4 +233,77 @@ public class Speedtest {
 		}
 		return -1;
 	}
+	
+	/**
+	 * @return what the results depend on: the mirrors and the network of the computer (its interfaces and their addresses)
+	 */
+	private String getFingerprint(List<String> urls) {
+		TreeSet<String> network = new TreeSet<>();
+		try {
+			for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+				if (networkInterface.isUp() && networkInterface.isLoopback() == false) {
+					network.add(networkInterface.getName() + "=" + networkInterface.inetAddresses().map(InetAddress::getHostAddress).sorted()
+						.collect(Collectors.joining(",")));
+				}
+			}
+		}
+		catch (SocketException e) {
+			this.log.debug("Speedtest::getFingerprint Exception " + e);
+		}
+		return UUID.nameUUIDFromBytes((String.join(" ", new TreeSet<>(urls)) + "|" + String.join(" ", network)).getBytes(StandardCharsets.UTF_8)).toString();
+	}
+	
+	/**
+	 * @return the results kept by a previous run, null if there are none for this fingerprint or if they are too old
+	 */
+	private List<SpeedTestTarget> readCache(String fingerprint) {
+		if (this.cacheFile == null || this.cacheFile.isFile() == false) {
+			return null;
+		}
+		
+		try {
+			List<String> lines = Files.readAllLines(this.cacheFile.toPath(), StandardCharsets.UTF_8);
+			if (lines.isEmpty()) {
+				return null;
+			}
+			String[] header = lines.get(0).split(SEPARATOR);
+			if (header.length != 2 || fingerprint.equals(header[1]) == false || new Date().getTime() - Long.parseLong(header[0]) > CACHE_TTL) {
+				return null;
+			}
+			
+			List<SpeedTestTarget> result = new ArrayList<>();
+			for (String line : lines.subList(1, lines.size())) {
+				String[] parts = line.split(SEPARATOR);
+				if (parts.length != 3) {
+					return null;
+				}
+				LongSummaryStatistics ping = new LongSummaryStatistics();
+				ping.accept(Long.parseLong(parts[2]));
+				result.add(new SpeedTestTarget(parts[0], Long.parseLong(parts[1]), ping));
+			}
+			return result.isEmpty() ? null : result;
+		}
+		catch (IOException | NumberFormatException e) {
+			this.log.debug("Speedtest::readCache failed to read " + this.cacheFile.getAbsolutePath() + " (" + e + ")");
+			return null;
+		}
+	}
+	
+	private void writeCache(String fingerprint, List<SpeedTestTarget> result) {
+		if (this.cacheFile == null) {
+			return;
+		}
+		
+		try (BufferedWriter writer = Files.newBufferedWriter(this.cacheFile.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(new Date().getTime() + SEPARATOR + fingerprint);
+			writer.newLine();
+			for (SpeedTestTarget target : result) {
+				writer.write(target.getUrl() + SEPARATOR + target.getSpeedtest() + SEPARATOR + Math.round(target.getPing().getAverage()));
+				writer.newLine();
+			}
+		}
+		catch (IOException e) {
+			this.log.debug("Speedtest::writeCache failed to write " + this.cacheFile.getAbsolutePath() + " (" + e + ")");
+		}
+	}
 }
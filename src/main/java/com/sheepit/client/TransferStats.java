@@ -17,16 +17,16 @@ public class TransferStats {
 		this.millis = 0;
 	}
 	
-	public void calc(long bytes, long millis) {
+	public synchronized void calc(long bytes, long millis) {
 		this.bytes += bytes;
 		this.millis += millis;
 	}
 	
-	public String getSessionTraffic() {
+	public synchronized String getSessionTraffic() {
 		return Utils.formatDataConsumption(this.bytes);
 	}
 	
-	public String getAverageSessionSpeed() {
+	public synchronized String getAverageSessionSpeed() {
 		try {
 			return Utils.formatDataConsumption((long) (this.bytes / (this.millis / 1000f)));
 		} catch (ArithmeticException e) {	// Unlikely, but potential division by zero fallback if first transfer is done in zero millis
@@ -34,7 +34,7 @@ public class TransferStats {
 		}
 	}
 	
-	public long getRawAverageSessionSpeed() {
+	public synchronized long getRawAverageSessionSpeed() {
 		return this.millis != 0 ? (long) (this.bytes / (this.millis / 1000f)) : 0;
 	}
 }
@@ -0,0 +1,159 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/****************
+ * The frames waiting for their upload, kept on disk next to the render archive so they are still uploaded after the client is stopped, crashes or the
+ * computer restarts. The frame is moved in a directory of the journal, under its own name since it's the name sent to the server, with a small entry
+ * file written before the frame is queued and removed once its upload is over.
+ */
+public class UploadJournal {
+	public static final String DIRECTORY = "sheepit_upload_queue";
+	
+	private static final String EXTENSION = ".upload";
+	private static final String SEPARATOR = "\t";
+	private static final long MAX_AGE = 24 * 3600 * 1000L; // in ms, the server has given an older frame to another client, its upload would be refused
+	
+	private final File directory;
+	private final Log log;
+	
+	public UploadJournal(File directory, Log log) {
+		this.directory = directory;
+		this.log = log;
+		this.directory.mkdirs();
+	}
+	
+	/**
+	 * Move the frame of the job in the journal and record it
+	 *
+	 * @return the entry of the frame, null if it could not be written (the frame is then only queued in memory)
+	 */
+	public synchronized File add(Job job) {
+		String name = new Date().getTime() + "_" + job.getId() + "_" + job.getFrameNumber();
+		File frame = new File(job.getOutputImagePath());
+		File journalFrame = new File(new File(this.directory, name), frame.getName());
+		File entry = new File(this.directory, name + EXTENSION);
+		
+		String line = String.join(SEPARATOR, Long.toString(new Date().getTime()), job.getId(), job.getFrameNumber(), job.getSceneMD5(),
+				Integer.toString(job.getProcessRender().getRenderDuration()), Long.toString(job.getProcessRender().getPeakMemoryUsed()),
+				journalFrame.getAbsolutePath(), job.getValidationUrl());
+		
+		// the entry first: a frame without entry could not be uploaded, an entry without frame is only removed on the next start
+		File temp = new File(entry.getAbsolutePath() + ".tmp");
+		try {
+			try (FileOutputStream out = new FileOutputStream(temp)) {
+				out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+				out.getFD().sync();
+			}
+			try {
+				Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			journalFrame.getParentFile().mkdir();
+			Files.move(frame.toPath(), journalFrame.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			this.log.error("UploadJournal::add failed to record " + frame.getAbsolutePath() + " (" + e + ")");
+			temp.delete();
+			this.remove(entry);
+			return null;
+		}
+		
+		job.setOutputImagePath(journalFrame.getAbsolutePath());
+		return entry;
+	}
+	
+	/**
+	 * The upload of the frame is over, uploaded or not
+	 */
+	public synchronized void remove(File entry) {
+		entry.delete();
+		Utils.delete(frameDirectory(entry));
+	}
+	
+	/**
+	 * Read the frames left by a previous run. The expired ones are removed, with the frames and entries left half written.
+	 *
+	 * @return by entry, the job to upload with its frame and its render time and memory
+	 */
+	public synchronized List<Pair<File, Job>> load(Configuration config, Gui gui) {
+		List<Pair<File, Job>> jobs = new ArrayList<>();
+		Set<String> frames = new HashSet<>(); // names of the directories of the frames
+		
+		File[] entries = this.directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		if (entries != null) {
+			Arrays.sort(entries); // in the order they were rendered
+			for (File entry : entries) {
+				Job job = this.read(entry, config, gui);
+				if (job == null) {
+					this.remove(entry);
+					continue;
+				}
+				frames.add(frameDirectory(entry).getName());
+				jobs.add(new Pair<>(entry, job));
+			}
+		}
+		
+		File[] files = this.directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(EXTENSION) == false && frames.contains(file.getName()) == false) {
+					this.log.debug("UploadJournal::load remove " + file.getAbsolutePath());
+					Utils.delete(file);
+				}
+			}
+		}
+		return jobs;
+	}
+	
+	private static File frameDirectory(File entry) {
+		return new File(entry.getParentFile(), entry.getName().substring(0, entry.getName().length() - EXTENSION.length()));
+	}
+	
+	private Job read(File entry, Configuration config, Gui gui) {
+		String[] parts;
+		try {
+			parts = new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8).trim().split(SEPARATOR, 8);
+		}
+		catch (IOException e) {
+			this.log.debug("UploadJournal::read failed to read " + entry.getAbsolutePath() + " (" + e + ")");
+			return null;
+		}
+		if (parts.length != 8) {
+			return null;
+		}
+		
+		try {
+			long age = new Date().getTime() - Long.parseLong(parts[0]);
+			File frame = new File(parts[6]);
+			if (age > MAX_AGE || frame.isFile() == false) {
+				this.log.debug("UploadJournal::read drop frame " + parts[2] + " of job " + parts[1] + " (queued " + age / 1000 + "s ago, exists " + frame.isFile() + ")");
+				return null;
+			}
+			
+			Job job = new Job(config, gui, this.log, parts[1], parts[2], "", false, "", parts[7], "", parts[3], "", "", null, false, "");
+			job.getProcessRender().setRenderDuration(Integer.parseInt(parts[4]));
+			job.getProcessRender().setPeakMemoryUsed(Long.parseLong(parts[5]));
+			job.setOutputImagePath(frame.getAbsolutePath());
+			job.setOutputImageSize(frame.length());
+			return job;
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
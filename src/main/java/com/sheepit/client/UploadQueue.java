@@ -0,0 +1,168 @@
+package com.sheepit.client;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sheepit.client.Error.ServerCode;
+import com.sheepit.client.Error.Type;
+
+/****************
+ * Frames waiting for their upload to the server. A few workers upload them at the same time, and a frame which failed to upload waits for its next
+ * try in the queue instead of in a worker, so the frames queued after it are still sent meanwhile. The queue is also written in an UploadJournal, the
+ * frames left by a previous run are uploaded when the queue starts.
+ */
+public class UploadQueue {
+	public static final int MAX_TRIES = 3;
+	public static final long RETRY_DELAY = 22000; // in ms, doubled after each failed try
+	private static final int WORKERS = 2;
+	
+	private final Client client;
+	private final Gui gui;
+	private final Log log;
+	private final DelayQueue<Upload> queue;
+	private final AtomicInteger size; // frames queued, waiting for their next try or being uploaded
+	private final AtomicLong volume; // in bytes
+	private UploadJournal journal; // null if the queue is only kept in memory
+	
+	public UploadQueue(Client client, Gui gui, Log log) {
+		this.client = client;
+		this.gui = gui;
+		this.log = log;
+		this.queue = new DelayQueue<>();
+		this.size = new AtomicInteger(0);
+		this.volume = new AtomicLong(0);
+		this.journal = null;
+	}
+	
+	/**
+	 * Start the workers, the frames of the journal are queued first
+	 */
+	public void start(UploadJournal journal, Configuration config) {
+		this.journal = journal;
+		if (journal != null) {
+			for (Pair<File, Job> entry : journal.load(config, this.gui)) {
+				this.log.info("UploadQueue::start frame " + entry.second.getFrameNumber() + " of job " + entry.second.getId() + " left by the previous run");
+				this.queue(this.log.newCheckPoint(), entry.second, entry.first);
+			}
+		}
+		
+		for (int i = 0; i < WORKERS; i++) {
+			Thread thread = new Thread(this::workerLoop, "Upload worker " + (i + 1));
+			thread.start();
+		}
+	}
+	
+	public void add(int checkpoint, Job job) {
+		UploadJournal journal = this.journal;
+		this.queue(checkpoint, job, journal != null ? journal.add(job) : null);
+	}
+	
+	private void queue(int checkpoint, Job job, File entry) {
+		this.size.incrementAndGet();
+		this.volume.addAndGet(job.getOutputImageSize());
+		this.queue.add(new Upload(checkpoint, job, entry));
+		this.displayStats();
+	}
+	
+	/**
+	 * @return the frames not uploaded yet, each one still holds one of the jobs the server allows to the session
+	 */
+	public int size() {
+		return this.size.get();
+	}
+	
+	private void workerLoop() {
+		while (true) {
+			Upload upload;
+			try {
+				upload = this.queue.take();
+			}
+			catch (InterruptedException e) {
+				this.log.error("UploadQueue::workerLoop Exception " + e.getMessage());
+				return;
+			}
+			
+			Type ret = upload.error;
+			try {
+				this.log.debug(upload.checkpoint, "will validate " + upload.job);
+				ServerCode serverCode = this.client.uploadFrame(upload.job, upload.checkpoint);
+				ret = Client.uploadError(serverCode, upload.error);
+				upload.tries++;
+				if (Client.isUploadOver(serverCode) == false && upload.tries < MAX_TRIES) {
+					long delay = RETRY_DELAY << (upload.tries - 1); // exponential backoff
+					this.log.debug(upload.checkpoint, "Retry the upload of the frame in " + delay / 1000 + "s");
+					upload.error = ret;
+					upload.readyAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+					this.queue.add(upload);
+					continue;
+				}
+				this.client.endOfUpload(upload.job, ret);
+			}
+			catch (Exception e) {
+				StringWriter sw = new StringWriter();
+				e.printStackTrace(new PrintWriter(sw));
+				this.log.error(upload.checkpoint, "UploadQueue::workerLoop Exception " + e + " stacktrace " + sw.toString());
+				ret = Error.Type.UNKNOWN;
+			}
+			
+			if (ret != Error.Type.OK) {
+				this.gui.error(Error.humanString(ret));
+				this.log.debug(upload.checkpoint, "UploadQueue::workerLoop confirm failed, ret: " + ret);
+				this.client.sendError(upload.checkpoint, upload.job, ret);
+			}
+			
+			if (upload.entry != null) {
+				this.journal.remove(upload.entry);
+			}
+			
+			// Remove the checkpoint information
+			this.log.removeCheckPoint(upload.checkpoint);
+			
+			this.size.decrementAndGet();
+			this.volume.addAndGet(-upload.job.getOutputImageSize());
+			this.displayStats();
+		}
+	}
+	
+	private void displayStats() {
+		this.gui.displayUploadQueueStats(this.size.get(), this.volume.get());
+	}
+	
+	/****************
+	 * A frame and its tries, it's taken from the queue once its next try is due
+	 */
+	private static class Upload implements Delayed {
+		private final int checkpoint; // the checkpoint associated with the job (to add any additional log to the render output)
+		private final Job job;
+		private final File entry; // in the journal, null if none
+		private int tries;
+		private Type error; // of the previous tries
+		private long readyAt; // System.nanoTime() of the next try
+		
+		public Upload(int checkpoint, Job job, File entry) {
+			this.checkpoint = checkpoint;
+			this.job = job;
+			this.entry = entry;
+			this.tries = 0;
+			this.error = Error.Type.OK;
+			this.readyAt = System.nanoTime();
+		}
+		
+		@Override public long getDelay(TimeUnit unit) {
+			return unit.convert(this.readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		
+		@Override public int compareTo(Delayed other) {
+			if (other instanceof Upload) { // in the order they were queued when due at the same time
+				return Long.compare(this.readyAt, ((Upload) other).readyAt);
+			}
+			return Long.compare(this.getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+}
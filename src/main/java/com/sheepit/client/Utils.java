@@ -24,20 +24,35 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -47,29 +62,124 @@ import com.sheepit.client.Error.ServerCode;
 
 import net.lingala.zip4j.ZipFile;
 import net.lingala.zip4j.exception.ZipException;
+import net.lingala.zip4j.model.FileHeader;
+import net.lingala.zip4j.util.BitUtils;
+import net.lingala.zip4j.util.UnzipUtil;
 
 public class Utils {
+	private static final int UNZIP_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Extract an archive. The central directory is read once, then the entries are inflated (and decrypted) in parallel, each one read from its own
+	 * position in the archive. The threads have the priority of the calling thread, so an extraction done in the background stays in the background.
+	 */
 	public static int unzipFileIntoDirectory(String zipFileName_, String destinationDirectory, char[] password, Log log) {
-		try {
-			ZipFile zipFile = new ZipFile(zipFileName_);
-//			unzipParameters.setIgnoreDateTimeAttributes(true);
-			
+		try (ZipFile zipFile = new ZipFile(zipFileName_)) {
 			if (password != null && zipFile.isEncrypted()) {
 				zipFile.setPassword(password);
 			}
-//			zipFile.extractAll(destinationDirectory, unzipParameters);
-			zipFile.extractAll(destinationDirectory);
+			
+			// the directories are created first, the threads only write files
+			File destination = new File(destinationDirectory);
+			String canonicalDestination = destination.getCanonicalPath() + File.separator;
+			List<FileHeader> files = new ArrayList<>();
+			for (FileHeader header : zipFile.getFileHeaders()) {
+				File output = new File(destination, header.getFileName());
+				if ((output.getCanonicalPath() + File.separator).startsWith(canonicalDestination) == false) {
+					throw new ZipException("illegal file name that breaks out of the target directory: " + header.getFileName());
+				}
+				
+				if (header.isDirectory()) {
+					output.mkdirs();
+				}
+				else {
+					output.getParentFile().mkdirs();
+					files.add(header);
+				}
+			}
+			
+			// the largest entries first, a big .blend at the end would be inflated by a single thread while the others are idle
+			files.sort(Comparator.comparingLong(FileHeader::getUncompressedSize).reversed());
+			
+			int priority = Thread.currentThread().getPriority();
+			ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), files.size())), runnable -> {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				thread.setPriority(priority);
+				return thread;
+			});
+			try {
+				List<Future<Void>> futures = new ArrayList<>();
+				for (FileHeader header : files) {
+					futures.add(pool.submit(() -> {
+						unzipEntry(zipFile, header, new File(destination, header.getFileName()));
+						return null;
+					}));
+				}
+				for (Future<Void> future : futures) {
+					future.get();
+				}
+			}
+			finally {
+				// on error, the other entries are stopped before the caller removes the directory
+				pool.shutdownNow();
+				pool.awaitTermination(1, TimeUnit.MINUTES);
+			}
 		}
-		catch (ZipException e) {
+		catch (IOException | InterruptedException | ExecutionException e) {
+			Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
-			e.printStackTrace(pw);
-			log.debug("Utils::unzipFileIntoDirectory(" + zipFileName_ + "," + destinationDirectory + ") exception " + e + " stacktrace: " + sw.toString());
+			cause.printStackTrace(pw);
+			log.debug("Utils::unzipFileIntoDirectory(" + zipFileName_ + "," + destinationDirectory + ") exception " + cause + " stacktrace: " + sw.toString());
 			return -1;
 		}
 		return 0;
 	}
 	
+	private static void unzipEntry(ZipFile zipFile, FileHeader header, File file) throws IOException {
+		InputStream stream;
+		synchronized (zipFile) {
+			stream = zipFile.getInputStream(header); // zip4j keeps the opened streams in a list which is not thread safe
+		}
+		
+		try (InputStream input = stream) {
+			if (isSymbolicLink(header)) {
+				// same as zip4j: the content of the entry is the target of the link
+				byte[] target = input.readAllBytes();
+				Path link = file.toPath();
+				try {
+					Files.deleteIfExists(link);
+					Files.createSymbolicLink(link, Paths.get(new String(target, StandardCharsets.UTF_8)));
+					return;
+				}
+				catch (UnsupportedOperationException | IOException e) {
+					// links not supported by the file system, the target is stored as a regular file
+					Files.write(link, target);
+				}
+			}
+			else {
+				try (OutputStream output = Files.newOutputStream(file.toPath())) {
+					byte[] buffer = new byte[UNZIP_BUFFER_SIZE];
+					int len;
+					while ((len = input.read(buffer)) != -1) {
+						if (Thread.currentThread().isInterrupted()) {
+							throw new InterruptedIOException("extraction cancelled");
+						}
+						output.write(buffer, 0, len);
+					}
+				}
+			}
+		}
+		
+		UnzipUtil.applyFileAttributes(header, file); // modification time and unix permissions
+	}
+	
+	private static boolean isSymbolicLink(FileHeader header) {
+		byte[] attributes = header.getExternalFileAttributes();
+		return attributes != null && attributes.length >= 4 && BitUtils.isBitSet(attributes[3], 5);
+	}
+	
 	public static String md5(String path_of_file_) {
 		try {
 			MessageDigest md = MessageDigest.getInstance("MD5");
@@ -171,6 +281,56 @@ public class Utils {
 		}
 	 }
 	
+	/**
+	 * Move a file or a directory into the render archive
+	 *
+	 * @param arrivalTime give its files the current modification time, for an age limit of the archive (ArchiveCompactor) counted from their arrival,
+	 *                    Utils::move keeps the time they were written. A file with several hard links (a file of a scene view, linked to the extracted
+	 *                    scene) is replaced by a copy first, the time of the other links must not change.
+	 */
+	public static void moveToArchive(File file, String dest, boolean arrivalTime) {
+		if (file == null) {
+			return;
+		}
+		move(file, dest);
+		if (arrivalTime == false) {
+			return;
+		}
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+		try (Stream<Path> walk = Files.walk(new File(dest, file.getName()).toPath())) {
+			walk.filter(Files::isRegularFile).forEach(path -> {
+				try {
+					unlink(path);
+					Files.setLastModifiedTime(path, now);
+				}
+				catch (IOException e) {
+					System.err.println("Exception while touching file: " + e.getMessage());
+				}
+			});
+		}
+		catch (IOException | UncheckedIOException e) {
+			System.err.println("Exception while touching file: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Replace a file with several hard links by a copy of its own
+	 */
+	private static void unlink(Path path) throws IOException {
+		Object links;
+		try {
+			links = Files.getAttribute(path, "unix:nlink");
+		}
+		catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return; // no link count (Windows), the scene views are copies there
+		}
+		if (links instanceof Integer && (Integer) links > 1) {
+			Path copy = path.resolveSibling(path.getFileName() + ".copy");
+			Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(copy, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+	
 	/**
 	 * Parse a number string to a number.
 	 * Input can be as "32", "10k", "100K", "100G", "1.3G", "0.4T"
@@ -0,0 +1,185 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.sheepit.client.os.CPUPlacement;
+import com.sheepit.client.os.OS;
+import com.sheepit.client.os.RenderGroup;
+
+/****************
+ * A renderer kept running between the frames of a project, so the scene is loaded and prepared (BVH, images, shaders) only once. Blender starts as
+ * for a single frame, without the frame to render, and runs last a small command loop (warm_renderer.py) which renders the frames asked on its
+ * standard input. The renderer is started again when the scene, the renderer, the script of the job or the settings of the render change, after a
+ * frame which did not end normally, and when it holds more memory than allowed.
+ */
+public class WarmRenderer {
+	private static final String LOOP_SCRIPT = "/warm_renderer.py";
+	private static final String FRAME_DONE = "SHEEPIT_WARM_DONE ";
+	private static final String FRAME_FAILED = "SHEEPIT_WARM_FAILED ";
+	
+	private final Log log;
+	private Process process;
+	private RenderGroup group;
+	private BufferedReader output;
+	private Writer input;
+	private File loopScript;
+	private String key; // what the loaded scene has been prepared for, see Job::getWarmRendererKey
+	private boolean rendering; // a frame has been asked and its end has not been read yet
+	private String blenderLongVersion; // only written when the renderer starts
+	private String blenderShortVersion;
+	
+	public WarmRenderer(Log log) {
+		this.log = log;
+		this.process = null;
+		this.group = null;
+		this.output = null;
+		this.input = null;
+		this.loopScript = null;
+		this.key = null;
+		this.rendering = false;
+		this.blenderLongVersion = null;
+		this.blenderShortVersion = null;
+	}
+	
+	/**
+	 * @return true if the running renderer can render a frame of the key
+	 */
+	public synchronized boolean isReady(String key) {
+		return this.process != null && this.process.isAlive() && this.rendering == false && key.equals(this.key);
+	}
+	
+	/**
+	 * Stop the current renderer and start a new one
+	 *
+	 * @param command command of the renderer for a single frame, without the frame to render
+	 * @param threads of the renderer, 0 if it uses all the cpus
+	 */
+	public synchronized void start(String key, List<String> command, Map<String, String> env, Configuration config, CPUPlacement placement, int threads)
+		throws IOException {
+		this.close();
+		
+		this.loopScript = File.createTempFile("warm_", ".py", config.getWorkingDirectory());
+		this.loopScript.deleteOnExit();
+		try (InputStream in = WarmRenderer.class.getResourceAsStream(LOOP_SCRIPT)) {
+			if (in == null) {
+				throw new IOException("resource " + LOOP_SCRIPT + " not found");
+			}
+			Files.copy(in, this.loopScript.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		
+		List<String> warmCommand = new ArrayList<>(command);
+		warmCommand.add("-P"); // after all the other arguments, Blender handles them in order
+		warmCommand.add(this.loopScript.getAbsolutePath());
+		
+		this.log.debug("WarmRenderer::start " + warmCommand);
+		this.group = OS.getOS().createRenderGroup(config, threads, this.log);
+		this.process = OS.getOS().exec(warmCommand, env, this.group, placement);
+		this.output = new BufferedReader(new InputStreamReader(this.process.getInputStream()));
+		this.input = new OutputStreamWriter(this.process.getOutputStream(), StandardCharsets.UTF_8);
+		this.key = key;
+		this.rendering = false;
+	}
+	
+	/**
+	 * Ask for a frame, its render is then read on getOutput() until isEndOfFrame()
+	 */
+	public synchronized void render(String frame, String outputPrefix) throws IOException {
+		this.rendering = true;
+		this.input.write("render " + frame + " " + outputPrefix + "\n");
+		this.input.flush();
+	}
+	
+	public static boolean isEndOfFrame(String line) {
+		return line.startsWith(FRAME_DONE) || line.startsWith(FRAME_FAILED);
+	}
+	
+	/**
+	 * @param line the end of frame line written by the renderer
+	 * @return true if the frame has been rendered, false if it failed (the renderer is then stopped)
+	 */
+	public synchronized boolean endOfFrame(String line) {
+		this.rendering = false;
+		if (line.startsWith(FRAME_DONE)) {
+			return true;
+		}
+		this.log.error("WarmRenderer::endOfFrame " + line);
+		this.close();
+		return false;
+	}
+	
+	public synchronized Process getProcess() {
+		return this.process;
+	}
+	
+	public synchronized RenderGroup getGroup() {
+		return this.group;
+	}
+	
+	public synchronized BufferedReader getOutput() {
+		return this.output;
+	}
+	
+	public synchronized void setBlenderVersion(String longVersion, String shortVersion) {
+		this.blenderLongVersion = longVersion;
+		this.blenderShortVersion = shortVersion;
+	}
+	
+	public synchronized String getBlenderLongVersion() {
+		return this.blenderLongVersion;
+	}
+	
+	public synchronized String getBlenderShortVersion() {
+		return this.blenderShortVersion;
+	}
+	
+	/**
+	 * Stop the renderer, if any
+	 */
+	public synchronized void close() {
+		if (this.process != null) {
+			this.log.debug("WarmRenderer::close");
+			try {
+				this.input.write("quit\n");
+				this.input.close();
+			}
+			catch (IOException e) {
+				// already over
+			}
+			if (this.group == null || this.group.kill() == false) {
+				OS.getOS().kill(this.process);
+			}
+			try {
+				this.output.close();
+			}
+			catch (IOException e) {
+			}
+		}
+		if (this.group != null) {
+			this.group.close();
+		}
+		if (this.loopScript != null) {
+			this.loopScript.delete();
+		}
+		this.process = null;
+		this.group = null;
+		this.output = null;
+		this.input = null;
+		this.loopScript = null;
+		this.key = null;
+		this.rendering = false;
+		this.blenderLongVersion = null;
+		this.blenderShortVersion = null;
+	}
+}
@@ -0,0 +1,110 @@
+package com.sheepit.client.os;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/****************
+ * Logical cpus (and memory node) a renderer is pinned to
+ */
+public class CPUPlacement {
+	public static final String AUTO = "auto";
+	public static final String NODE_PREFIX = "node:";
+	public static final int MAX_CPUS = 8192; // highest NR_CPUS of the kernel
+	public static final int MAX_NODES = 1024; // highest MAX_NUMNODES of the kernel
+	
+	private final List<Integer> cpus;
+	private final int memoryNode; // -1 if the memory is not bound to a node
+	private final boolean strictMemory; // true: only the memory of the node can be used, false: the node is preferred
+	
+	public CPUPlacement(List<Integer> cpus, int memoryNode, boolean strictMemory) {
+		this.cpus = Collections.unmodifiableList(new ArrayList<>(cpus));
+		this.memoryNode = memoryNode;
+		this.strictMemory = strictMemory;
+	}
+	
+	public List<Integer> getCpus() {
+		return this.cpus;
+	}
+	
+	public int getMemoryNode() {
+		return this.memoryNode;
+	}
+	
+	public boolean isStrictMemory() {
+		return this.strictMemory;
+	}
+	
+	/**
+	 * @return the cpus as "0,2,4", the format of taskset and numactl
+	 */
+	public String getCpuList() {
+		return this.cpus.stream().map(String::valueOf).collect(Collectors.joining(","));
+	}
+	
+	/**
+	 * @return true if the setting is "auto", "node:<n>" or a list of cpus like "0-7,16"
+	 */
+	public static boolean isValidSetting(String setting) {
+		if (AUTO.equals(setting)) {
+			return true;
+		}
+		if (setting.startsWith(NODE_PREFIX)) {
+			return parseNode(setting) != -1;
+		}
+		List<Integer> cpus = parseCpuList(setting, MAX_CPUS);
+		return cpus != null && cpus.isEmpty() == false;
+	}
+	
+	/**
+	 * @param setting as "node:<n>"
+	 * @return the node, -1 if the setting is not valid
+	 */
+	public static int parseNode(String setting) {
+		String node = setting.substring(NODE_PREFIX.length());
+		if (node.isEmpty() || node.chars().allMatch(Character::isDigit) == false || node.length() > 4) {
+			return -1;
+		}
+		int value = Integer.parseInt(node);
+		return value < MAX_NODES ? value : -1;
+	}
+	
+	/**
+	 * @param list as "0-7,16,18-19", the format used by the kernel in /sys
+	 * @param limit the cpus from this one are left out, a range is only read up to it
+	 * @return the cpus in the order of the list, null if the list is not valid
+	 */
+	public static List<Integer> parseCpuList(String list, int limit) {
+		List<Integer> cpus = new ArrayList<>();
+		if (list.trim().isEmpty()) {
+			return cpus;
+		}
+		BitSet seen = new BitSet(limit);
+		try {
+			for (String range : list.trim().split(",")) {
+				int separator = range.indexOf('-');
+				int first = Integer.parseInt(separator == -1 ? range : range.substring(0, separator));
+				int last = separator == -1 ? first : Integer.parseInt(range.substring(separator + 1));
+				if (first < 0 || last < first) {
+					return null;
+				}
+				for (int cpu = first; cpu <= Math.min(last, limit - 1); cpu++) {
+					if (seen.get(cpu) == false) {
+						seen.set(cpu);
+						cpus.add(cpu);
+					}
+				}
+			}
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+		return cpus;
+	}
+	
+	@Override public String toString() {
+		return "cpus " + this.getCpuList() + (this.memoryNode != -1 ? ", memory node " + this.memoryNode : "");
+	}
+}
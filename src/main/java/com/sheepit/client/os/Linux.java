@@ -23,15 +23,28 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.sheepit.client.Configuration;
 import com.sheepit.client.Log;
+import com.sheepit.client.os.linux.CPUTopology;
+import com.sheepit.client.os.linux.LibC;
+import com.sheepit.client.os.linux.ProcMemorySampler;
+import com.sheepit.client.os.linux.RenderCGroup;
+import com.sun.jna.Native;
 
 public class Linux extends OS {
 	private final String NICE_BINARY_PATH = "nice";
 	private final String ID_COMMAND_INVOCATION = "id -u";
+	private final String NUMACTL_BINARY_PATH = "numactl";
+	private final String TASKSET_BINARY_PATH = "taskset";
+	
+	private CPUTopology cpuTopology = null; // read on first use
+	private Boolean hasNumactl = null; // both detected on first use, see wrapPlacement()
+	private Boolean hasTaskset = null;
 	
 	public Linux() {
 		super();
@@ -50,6 +63,10 @@ public class Linux extends OS {
 	}
 	
 	@Override public Process exec(List<String> command, Map<String, String> env_overight) throws IOException {
+		return exec(command, env_overight, null, null);
+	}
+	
+	@Override public Process exec(List<String> command, Map<String, String> env_overight, RenderGroup group, CPUPlacement placement) throws IOException {
 		Map<String, String> new_env = new HashMap<String, String>();
 		new_env.putAll(java.lang.System.getenv()); // clone the env
 		
@@ -84,6 +101,13 @@ public class Linux extends OS {
 			Log.getInstance(null).error("No low priority binary, will not launch renderer in normal priority");
 		}
 		
+		if (placement != null) {
+			actual_command = wrapPlacement(actual_command, placement);
+		}
+		if (group != null) {
+			actual_command = group.wrap(actual_command);
+		}
+		
 		ProcessBuilder builder = new ProcessBuilder(actual_command);
 		builder.redirectErrorStream(true);
 		Map<String, String> env = builder.environment();
@@ -192,6 +216,119 @@ public class Linux extends OS {
 		return false;
 	}
 	
+	@Override public boolean setThreadBackgroundPriority() {
+		int sysGettid;
+		int sysIoprioSet;
+		switch (System.getProperty("os.arch").toLowerCase()) {
+			case "amd64":
+			case "x86_64":
+				sysGettid = LibC.SYS_GETTID_X86_64;
+				sysIoprioSet = LibC.SYS_IOPRIO_SET_X86_64;
+				break;
+			case "aarch64":
+				sysGettid = LibC.SYS_GETTID_AARCH64;
+				sysIoprioSet = LibC.SYS_IOPRIO_SET_AARCH64;
+				break;
+			default:
+				return false; // unknown system call numbers
+		}
+		
+		try {
+			LibC libc = (LibC) Native.load(LibC.path, LibC.class);
+			int tid = libc.syscall(sysGettid);
+			return libc.syscall(sysIoprioSet, LibC.IOPRIO_WHO_PROCESS, tid, LibC.IOPRIO_CLASS_IDLE << LibC.IOPRIO_CLASS_SHIFT) == 0;
+		}
+		catch (UnsatisfiedLinkError e) {
+			Log.getInstance(null).error("Linux::setThreadBackgroundPriority failed to load libc (" + e + ")");
+			return false;
+		}
+	}
+	
+	@Override public RenderGroup createRenderGroup(Configuration config, int threads, Log log) {
+		return config.isUseCGroup() ? RenderCGroup.create(config, threads, log) : null;
+	}
+	
+	@Override public synchronized CPUPlacement getCPUPlacement(Configuration config, Log log) {
+		if (config.getCpuPlacement() == null) {
+			return null;
+		}
+		if (this.cpuTopology == null) {
+			this.cpuTopology = new CPUTopology();
+		}
+		CPUPlacement placement = this.cpuTopology.place(config.getCpuPlacement(), config.getNbCores());
+		if (placement == null) {
+			log.error("Linux::getCPUPlacement the cpu placement '" + config.getCpuPlacement() + "' does not match the cpus of this computer, the renderer will not be pinned");
+		}
+		return placement;
+	}
+	
+	@Override public synchronized List<String> splitCPUPlacement(Configuration config, int parts, Log log) {
+		CPUPlacement placement = this.getCPUPlacement(config, log);
+		if (placement == null) {
+			return null;
+		}
+		List<List<Integer>> split = this.cpuTopology.split(placement.getCpus(), parts);
+		if (split == null) {
+			log.error("Linux::splitCPUPlacement not enough physical cores in " + placement + " for " + parts + " renders, the renderers will not be pinned");
+			return null;
+		}
+		List<String> settings = new ArrayList<>(parts);
+		for (List<Integer> cpus : split) {
+			settings.add(new CPUPlacement(cpus, -1, false).getCpuList());
+		}
+		return settings;
+	}
+	
+	/**
+	 * Pin the process with numactl (cpus and memory node), or with taskset (cpus only) when numactl is not installed
+	 */
+	private synchronized List<String> wrapPlacement(List<String> command, CPUPlacement placement) {
+		if (this.hasNumactl == null) {
+			this.hasNumactl = isCommandAvailable(NUMACTL_BINARY_PATH, "--show");
+			this.hasTaskset = isCommandAvailable(TASKSET_BINARY_PATH, "--version");
+		}
+		
+		List<String> wrapped = new ArrayList<>();
+		if (this.hasNumactl) {
+			wrapped.add(NUMACTL_BINARY_PATH);
+			wrapped.add("--physcpubind=" + placement.getCpuList());
+			if (placement.getMemoryNode() != -1) {
+				wrapped.add((placement.isStrictMemory() ? "--membind=" : "--preferred=") + placement.getMemoryNode());
+			}
+			wrapped.add("--");
+		}
+		else if (this.hasTaskset) {
+			wrapped.add(TASKSET_BINARY_PATH);
+			wrapped.add("-c");
+			wrapped.add(placement.getCpuList());
+		}
+		else {
+			Log.getInstance(null).error("Linux::wrapPlacement neither numactl nor taskset is installed, the renderer will not be pinned");
+			return command;
+		}
+		wrapped.addAll(command);
+		return wrapped;
+	}
+	
+	private boolean isCommandAvailable(String binary, String argument) {
+		try {
+			Process process = new ProcessBuilder(binary, argument).redirectErrorStream(true).start();
+			process.getInputStream().readAllBytes();
+			return process.waitFor() == 0;
+		}
+		catch (IOException e) {
+			return false;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	@Override public MemorySampler createMemorySampler(long pid) {
+		return ProcMemorySampler.isSupported() ? new ProcMemorySampler(pid) : null;
+	}
+	
 	@Override public void shutdownComputer(int delayInMinutes) {
 		try {
 			// Shutdown the computer waiting delayInMinutes minutes to allow all SheepIt threads to close and exit the app
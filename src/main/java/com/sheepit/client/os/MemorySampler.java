@@ -0,0 +1,13 @@
+package com.sheepit.client.os;
+
+/****************
+ * Memory used by a process and all its descendants, sampled while it runs
+ */
+public interface MemorySampler {
+	/**
+	 * @return the resident memory of the process and its descendants in kB, -1 if it can not be read anymore
+	 */
+	long sample();
+	
+	void close();
+}
@@ -27,6 +27,8 @@ import oshi.SystemInfo;
 import oshi.hardware.CentralProcessor;
 import oshi.software.os.OperatingSystem;
 import oshi.hardware.HardwareAbstractionLayer;
+import com.sheepit.client.Configuration;
+import com.sheepit.client.Log;
 import com.sheepit.client.hardware.cpu.CPU;
 
 public abstract class OS {
@@ -72,6 +74,22 @@ public abstract class OS {
 	 */
 	public abstract void shutdownComputer(int delayInMinutes);
 	
+	/**
+	 * Lower the disk priority of the calling thread, used for the work done in the background while a render is running
+	 *
+	 * @return false if not supported on this os
+	 */
+	public boolean setThreadBackgroundPriority() {
+		return false;
+	}
+	
+	/**
+	 * @return a sampler of the memory used by the process and its children, null if the os does not provide one (the process is then followed with oshi)
+	 */
+	public MemorySampler createMemorySampler(long pid) {
+		return null;
+	}
+	
 	public CPU getCPU() {
 		CentralProcessor.ProcessorIdentifier cpuID = hardwareAbstractionLayer.getProcessor().getProcessorIdentifier();
 		CPU ret = new CPU();
@@ -90,6 +108,51 @@ public abstract class OS {
 		return builder.start();
 	}
 	
+	/**
+	 * @return the group to run a render in, with the limits of the configuration enforced by the os. null if the os does not provide it, the limits are
+	 * then checked by the client.
+	 *
+	 * @param threads of the renderer, 0 if it uses all the cpus
+	 */
+	public RenderGroup createRenderGroup(Configuration config, int threads, Log log) {
+		return null;
+	}
+	
+	/**
+	 * @return the cpus to pin the renderer to, from the cpu placement of the configuration. null if there is no placement or the os does not support it.
+	 */
+	public CPUPlacement getCPUPlacement(Configuration config, Log log) {
+		return null;
+	}
+	
+	/**
+	 * Share the cpus of the cpu placement of the configuration between renders running at the same time
+	 *
+	 * @return a cpu placement setting (a list of cpus) per render, null if there is no placement or the os does not support it
+	 */
+	public List<String> splitCPUPlacement(Configuration config, int parts, Log log) {
+		return null;
+	}
+	
+	/**
+	 * Start a process inside a render group
+	 *
+	 * @param group can be null
+	 */
+	public Process exec(List<String> command, Map<String, String> env, RenderGroup group) throws IOException {
+		return exec(command, env, group, null);
+	}
+	
+	/**
+	 * Start a process inside a render group, pinned to some cpus
+	 *
+	 * @param group can be null
+	 * @param placement can be null, ignored if the os does not support it
+	 */
+	public Process exec(List<String> command, Map<String, String> env, RenderGroup group, CPUPlacement placement) throws IOException {
+		return exec(group != null ? group.wrap(command) : command, env);
+	}
+	
 	public boolean kill(Process proc) {
 		if (proc != null) {
 			proc.destroy();
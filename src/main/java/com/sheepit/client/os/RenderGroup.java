@@ -0,0 +1,30 @@
+package com.sheepit.client.os;
+
+import java.util.List;
+
+/****************
+ * Processes of a render (the renderer and all its children), with resource limits enforced by the os
+ */
+public interface RenderGroup {
+	/**
+	 * @return the command to run so the process starts inside the group, before it can start any child
+	 */
+	List<String> wrap(List<String> command);
+	
+	/**
+	 * Kill every process of the group
+	 *
+	 * @return false if the group could not kill them, the caller has to kill the renderer itself
+	 */
+	boolean kill();
+	
+	/**
+	 * @return true if the os killed a process of the group because the group was over its memory limit
+	 */
+	boolean isOutOfMemory();
+	
+	/**
+	 * Remove the group, once its processes are over
+	 */
+	void close();
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import com.sheepit.client.Log;
 import com.sheepit.client.os.windows.Kernel32Lib;
 import com.sheepit.client.os.windows.WinProcess;
 import com.sun.jna.Native;
@@ -102,6 +103,17 @@ public class Windows extends OS {
 			);
 	}
 	
+	@Override public boolean setThreadBackgroundPriority() {
+		try {
+			Kernel32Lib kernel32lib = (Kernel32Lib) Native.load(Kernel32Lib.path, Kernel32Lib.class);
+			return kernel32lib.SetThreadPriority(kernel32lib.GetCurrentThread(), Kernel32Lib.THREAD_MODE_BACKGROUND_BEGIN);
+		}
+		catch (UnsatisfiedLinkError e) {
+			Log.getInstance(null).error("Windows::setThreadBackgroundPriority failed to load kernel32lib (" + e + ")");
+			return false;
+		}
+	}
+	
 	int getPriorityClass(int priority) {
 		int process_class = WinProcess.PRIORITY_IDLE;
 		switch (priority) {
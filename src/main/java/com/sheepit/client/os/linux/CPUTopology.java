@@ -0,0 +1,181 @@
+package com.sheepit.client.os.linux;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.sheepit.client.os.CPUPlacement;
+
+/****************
+ * Sockets, NUMA nodes, physical cores and their SMT siblings, as described by /sys/devices/system
+ */
+public class CPUTopology {
+	private static final String CPU_DIRECTORY = "/sys/devices/system/cpu";
+	private static final String NODE_DIRECTORY = "/sys/devices/system/node";
+	
+	// by node, the logical cpus ordered with one thread of each physical core first, then the other SMT siblings
+	private final Map<Integer, List<Integer>> nodes;
+	private final Map<Integer, Integer> physicalCores; // by node
+	private final List<List<Integer>> coreCpus; // the cpus of each physical core (its SMT siblings), node after node
+	
+	public CPUTopology() {
+		this.nodes = new TreeMap<>();
+		this.physicalCores = new TreeMap<>();
+		this.coreCpus = new ArrayList<>();
+		
+		Map<Integer, List<Integer>> nodeCpus = new TreeMap<>();
+		File[] nodeDirectories = new File(NODE_DIRECTORY).listFiles((dir, name) -> name.matches("node\\d+"));
+		if (nodeDirectories != null) {
+			for (File directory : nodeDirectories) {
+				List<Integer> cpus = CPUPlacement.parseCpuList(read(new File(directory, "cpulist")), CPUPlacement.MAX_CPUS);
+				if (cpus != null && cpus.isEmpty() == false) {
+					nodeCpus.put(Integer.parseInt(directory.getName().substring("node".length())), cpus);
+				}
+			}
+		}
+		if (nodeCpus.isEmpty()) {
+			// kernel without NUMA support, a single node
+			List<Integer> cpus = CPUPlacement.parseCpuList(read(new File(CPU_DIRECTORY, "online")), CPUPlacement.MAX_CPUS);
+			if (cpus != null && cpus.isEmpty() == false) {
+				nodeCpus.put(0, cpus);
+			}
+		}
+		
+		for (Map.Entry<Integer, List<Integer>> node : nodeCpus.entrySet()) {
+			List<Integer> firstThreads = new ArrayList<>();
+			List<Integer> siblings = new ArrayList<>();
+			Map<String, List<Integer>> cores = new LinkedHashMap<>();
+			for (int cpu : node.getValue()) {
+				String topology = CPU_DIRECTORY + "/cpu" + cpu + "/topology/";
+				String core = read(new File(topology + "physical_package_id")) + ":" + read(new File(topology + "core_id"));
+				if (cores.containsKey(core) == false) {
+					cores.put(core, new ArrayList<>());
+					firstThreads.add(cpu);
+				}
+				else {
+					siblings.add(cpu);
+				}
+				cores.get(core).add(cpu);
+			}
+			firstThreads.addAll(siblings);
+			this.nodes.put(node.getKey(), firstThreads);
+			this.physicalCores.put(node.getKey(), cores.size());
+			this.coreCpus.addAll(cores.values());
+		}
+	}
+	
+	/**
+	 * @param setting "auto", "node:<n>" or a list of cpus
+	 * @param cores number of threads the renderer will use, all the cpus if <= 0
+	 * @return null if the setting can not be applied on this computer
+	 */
+	public CPUPlacement place(String setting, int cores) {
+		if (this.nodes.isEmpty()) {
+			return null;
+		}
+		
+		if (setting.startsWith(CPUPlacement.NODE_PREFIX)) {
+			int node = CPUPlacement.parseNode(setting);
+			List<Integer> cpus = this.nodes.get(node);
+			if (cpus == null) {
+				return null;
+			}
+			return new CPUPlacement(first(cpus, cores), node, true); // explicitly asked, the memory of the other nodes is not used
+		}
+		
+		if (CPUPlacement.AUTO.equals(setting) == false) {
+			// a range is only read up to the highest online cpu
+			int online = this.nodes.values().stream().flatMap(List::stream).mapToInt(Integer::intValue).max().orElse(-1) + 1;
+			List<Integer> cpus = CPUPlacement.parseCpuList(setting, online);
+			if (cpus == null) {
+				return null;
+			}
+			cpus.removeIf(cpu -> this.nodes.values().stream().noneMatch(node -> node.contains(cpu))); // offline or not existing
+			if (cpus.isEmpty()) {
+				return null;
+			}
+			return new CPUPlacement(cpus, this.getNode(cpus), false);
+		}
+		
+		int wanted = cores > 0 ? cores : this.nodes.values().stream().mapToInt(List::size).sum();
+		
+		// a single node if one has enough physical cores, its memory is then preferred
+		for (Map.Entry<Integer, List<Integer>> node : this.nodes.entrySet()) {
+			if (this.physicalCores.get(node.getKey()) >= wanted) {
+				return new CPUPlacement(first(node.getValue(), wanted), node.getKey(), false);
+			}
+		}
+		
+		// otherwise physical cores of several nodes, before any SMT sibling
+		List<Integer> firstThreads = new ArrayList<>();
+		List<Integer> siblings = new ArrayList<>();
+		for (Map.Entry<Integer, List<Integer>> node : this.nodes.entrySet()) {
+			int physical = this.physicalCores.get(node.getKey());
+			firstThreads.addAll(node.getValue().subList(0, physical));
+			siblings.addAll(node.getValue().subList(physical, node.getValue().size()));
+		}
+		firstThreads.addAll(siblings);
+		List<Integer> cpus = first(firstThreads, wanted);
+		return new CPUPlacement(cpus, this.getNode(cpus), false);
+	}
+	
+	/**
+	 * Share cpus between renders running at the same time. A physical core is never shared, its SMT siblings go to the same render, and the cpus of a
+	 * render are on as few nodes as possible.
+	 *
+	 * @return the cpus of each render, null if there are less physical cores than renders
+	 */
+	public List<List<Integer>> split(List<Integer> cpus, int parts) {
+		// the cores are split, then each one is expanded into its siblings
+		List<List<Integer>> cores = new ArrayList<>();
+		for (List<Integer> core : this.coreCpus) {
+			List<Integer> available = new ArrayList<>(core);
+			available.retainAll(cpus);
+			if (available.isEmpty() == false) {
+				cores.add(available);
+			}
+		}
+		if (cores.size() < parts) {
+			return null;
+		}
+		
+		List<List<Integer>> split = new ArrayList<>(parts);
+		for (int i = 0; i < parts; i++) {
+			List<Integer> part = new ArrayList<>();
+			cores.subList(i * cores.size() / parts, (i + 1) * cores.size() / parts).forEach(part::addAll);
+			split.add(part);
+		}
+		return split;
+	}
+	
+	/**
+	 * @return the node of all the cpus, -1 if they are on several nodes
+	 */
+	private int getNode(List<Integer> cpus) {
+		for (Map.Entry<Integer, List<Integer>> node : this.nodes.entrySet()) {
+			if (node.getValue().containsAll(cpus)) {
+				return node.getKey();
+			}
+		}
+		return -1;
+	}
+	
+	private static List<Integer> first(List<Integer> cpus, int count) {
+		return count > 0 && count < cpus.size() ? cpus.subList(0, count) : cpus;
+	}
+	
+	private static String read(File file) {
+		try {
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+		}
+		catch (IOException e) {
+			return "";
+		}
+	}
+}
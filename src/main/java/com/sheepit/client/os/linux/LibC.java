@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2010-2014 Laurent CLOUET
+ * Author Laurent CLOUET <laurent.clouet@nopnop.net>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; version 2
+ * of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sheepit.client.os.linux;
+
+import com.sun.jna.Library;
+
+public interface LibC extends Library {
+	public static final String path = "c";
+	
+	/**
+	 * System call numbers, they depend on the architecture
+	 */
+	public static final int SYS_IOPRIO_SET_X86_64 = 251;
+	public static final int SYS_GETTID_X86_64 = 186;
+	public static final int SYS_IOPRIO_SET_AARCH64 = 30;
+	public static final int SYS_GETTID_AARCH64 = 178;
+	
+	public static final int IOPRIO_WHO_PROCESS = 1;
+	public static final int IOPRIO_CLASS_IDLE = 3;
+	public static final int IOPRIO_CLASS_SHIFT = 13;
+	
+	public int syscall(int number, Object... args);
+	
+	public int getpagesize();
+}
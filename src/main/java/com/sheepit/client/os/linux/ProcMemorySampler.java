@@ -0,0 +1,198 @@
+package com.sheepit.client.os.linux;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.sheepit.client.os.MemorySampler;
+import com.sun.jna.Native;
+
+/****************
+ * Resident memory of a process tree read from /proc. The statm file of every process of the tree is kept open and read again from its start at each
+ * sample, in the same buffer, so a sample costs one read per process. The tree itself (/proc/<pid>/task/<tid>/children) is only scanned again every
+ * few samples, the renderer rarely starts new processes.
+ */
+public class ProcMemorySampler implements MemorySampler {
+	private static final String PROC = "/proc";
+	private static final int TREE_REFRESH = 5; // samples between two scans of the process tree
+	private static final long DEFAULT_PAGE_SIZE = 4096;
+	
+	private final long root;
+	private final long pageSize; // in bytes
+	private final byte[] buffer;
+	private final Map<Long, RandomAccessFile> statm; // by pid, the processes of the tree
+	private int samplesBeforeRefresh;
+	private boolean closed;
+	
+	public ProcMemorySampler(long pid) {
+		this.root = pid;
+		this.pageSize = getPageSize();
+		this.buffer = new byte[256];
+		this.statm = new HashMap<>();
+		this.samplesBeforeRefresh = 0;
+		this.closed = false;
+	}
+	
+	public static boolean isSupported() {
+		return new File(PROC + "/self/statm").canRead();
+	}
+	
+	@Override public synchronized long sample() {
+		if (this.closed) {
+			return -1;
+		}
+		
+		if (this.samplesBeforeRefresh <= 0) {
+			this.refreshTree();
+			this.samplesBeforeRefresh = TREE_REFRESH;
+		}
+		this.samplesBeforeRefresh--;
+		
+		long pages = 0;
+		Iterator<Map.Entry<Long, RandomAccessFile>> it = this.statm.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Long, RandomAccessFile> entry = it.next();
+			long resident = this.readResidentPages(entry.getValue());
+			if (resident < 0) {
+				// the process is over
+				closeQuietly(entry.getValue());
+				it.remove();
+				if (entry.getKey() == this.root) {
+					return -1;
+				}
+				continue;
+			}
+			pages += resident;
+		}
+		if (this.statm.containsKey(this.root) == false) {
+			return -1;
+		}
+		return pages * this.pageSize / 1024;
+	}
+	
+	@Override public synchronized void close() {
+		this.closed = true;
+		for (RandomAccessFile file : this.statm.values()) {
+			closeQuietly(file);
+		}
+		this.statm.clear();
+	}
+	
+	/**
+	 * Open the statm file of the new processes of the tree and close the ones of the processes which are gone
+	 */
+	private void refreshTree() {
+		List<Long> tree = new ArrayList<>();
+		tree.add(this.root);
+		for (int i = 0; i < tree.size(); i++) {
+			String[] tasks = new File(PROC + "/" + tree.get(i) + "/task").list();
+			if (tasks == null) {
+				continue;
+			}
+			for (String task : tasks) {
+				this.readNumbers(PROC + "/" + tree.get(i) + "/task/" + task + "/children", tree);
+			}
+		}
+		
+		this.statm.entrySet().removeIf(entry -> {
+			if (tree.contains(entry.getKey()) == false) {
+				closeQuietly(entry.getValue());
+				return true;
+			}
+			return false;
+		});
+		for (Long pid : tree) {
+			if (this.statm.containsKey(pid) == false) {
+				try {
+					this.statm.put(pid, new RandomAccessFile(PROC + "/" + pid + "/statm", "r"));
+				}
+				catch (IOException e) {
+					// the process is already over
+				}
+			}
+		}
+	}
+	
+	/**
+	 * statm is "size resident shared text lib data dt", in pages
+	 *
+	 * @return the resident pages, -1 if the file can not be read anymore
+	 */
+	private long readResidentPages(RandomAccessFile file) {
+		try {
+			file.seek(0);
+			int length = file.read(this.buffer);
+			int i = 0;
+			while (i < length && this.buffer[i] != ' ') {
+				i++;
+			}
+			i++;
+			long value = 0;
+			boolean found = false;
+			while (i < length && this.buffer[i] >= '0' && this.buffer[i] <= '9') {
+				value = value * 10 + (this.buffer[i] - '0');
+				found = true;
+				i++;
+			}
+			return found ? value : -1;
+		}
+		catch (IOException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Add the numbers of a file of numbers separated by spaces to a list, nothing if the file can not be read
+	 */
+	private void readNumbers(String path, List<Long> numbers) {
+		try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+			long value = 0;
+			boolean inNumber = false;
+			int length;
+			while ((length = file.read(this.buffer)) > 0) {
+				for (int i = 0; i < length; i++) {
+					byte c = this.buffer[i];
+					if (c >= '0' && c <= '9') {
+						value = value * 10 + (c - '0');
+						inNumber = true;
+					}
+					else if (inNumber) {
+						numbers.add(value);
+						value = 0;
+						inNumber = false;
+					}
+				}
+			}
+			if (inNumber) {
+				numbers.add(value);
+			}
+		}
+		catch (IOException e) {
+			// the process is over, or the kernel does not provide the children of a task
+		}
+	}
+	
+	private static void closeQuietly(RandomAccessFile file) {
+		try {
+			file.close();
+		}
+		catch (IOException e) {
+		}
+	}
+	
+	private static long getPageSize() {
+		try {
+			LibC libc = (LibC) Native.load(LibC.path, LibC.class);
+			int size = libc.getpagesize();
+			return size > 0 ? size : DEFAULT_PAGE_SIZE;
+		}
+		catch (UnsatisfiedLinkError e) {
+			return DEFAULT_PAGE_SIZE;
+		}
+	}
+}
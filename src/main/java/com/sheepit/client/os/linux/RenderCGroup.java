@@ -0,0 +1,251 @@
+package com.sheepit.client.os.linux;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sheepit.client.Configuration;
+import com.sheepit.client.Log;
+import com.sheepit.client.os.RenderGroup;
+
+/****************
+ * A render in its own cgroup (v2), with the memory, cpu and pids limits of the configuration enforced by the kernel.
+ * It needs a cgroup delegated to the user, as done by systemd for a service with Delegate=yes or by "systemd-run --user --scope -p Delegate=yes".
+ * The client itself is never moved, only the renderers are. A cgroup with processes can not give controllers to its children, so the limits need the
+ * client to be started in a leaf named sheepit-client of the delegated cgroup: the renders are then siblings of the client. Otherwise the renders are
+ * children of the (delegated) cgroup of the client, without controllers: a render can still be killed as a whole but its limits are checked by the
+ * client. Without delegation, no group is created and the renderer runs as before.
+ */
+public class RenderCGroup implements RenderGroup {
+	private static final String ROOT = "/sys/fs/cgroup";
+	private static final String[] CONTROLLERS = { "memory", "cpu", "pids" };
+	private static final String CLIENT_GROUP = "sheepit-client";
+	private static final String RENDER_GROUP_PREFIX = "sheepit-render-";
+	private static final long CPU_PERIOD = 100000; // in us
+	private static final int PIDS_BASE = 256;
+	private static final int PIDS_PER_THREAD = 32; // the renderer, its libraries and its children start several threads per render thread
+	
+	private static boolean initialized = false;
+	private static Path parent = null; // delegated cgroup of the client, null if not available
+	private static final AtomicInteger counter = new AtomicInteger(0);
+	
+	private final Path path;
+	private final Log log;
+	
+	private RenderCGroup(Path path, Log log) {
+		this.path = path;
+		this.log = log;
+	}
+	
+	/**
+	 * @param threads of the renderer, 0 if it uses all the cpus
+	 * @return the group of a new render, null if the cgroups can not be used
+	 */
+	public static synchronized RenderCGroup create(Configuration config, int threads, Log log) {
+		if (initialized == false) {
+			parent = setup(log);
+			if (parent != null) {
+				removeStaleGroups(parent);
+			}
+			initialized = true;
+		}
+		if (parent == null) {
+			return null;
+		}
+		
+		Path path = parent.resolve(RENDER_GROUP_PREFIX + ProcessHandle.current().pid() + "-" + counter.incrementAndGet());
+		try {
+			Files.createDirectory(path);
+		}
+		catch (IOException e) {
+			log.error("RenderCGroup::create failed to create " + path + " (" + e + ")");
+			return null;
+		}
+		
+		RenderCGroup group = new RenderCGroup(path, log);
+		group.applyLimits(config, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+		return group;
+	}
+	
+	@Override public List<String> wrap(List<String> command) {
+		// the shell moves itself to the group then becomes the renderer, so the renderer and all its children are in the group from the start. If the
+		// move fails the renderer is still started, without the limits.
+		List<String> wrapped = new ArrayList<>();
+		wrapped.add("sh");
+		wrapped.add("-c");
+		wrapped.add("echo $$ > \"$0\"; exec \"$@\"");
+		wrapped.add(this.path.resolve("cgroup.procs").toString());
+		wrapped.addAll(command);
+		return wrapped;
+	}
+	
+	@Override public boolean kill() {
+		if (write(this.path.resolve("cgroup.kill"), "1")) {
+			return true;
+		}
+		
+		// kernel older than 5.14
+		List<String> pids;
+		try {
+			pids = Files.readAllLines(this.path.resolve("cgroup.procs"), StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			return false;
+		}
+		boolean killed = false;
+		for (String pid : pids) {
+			try {
+				Optional<ProcessHandle> process = ProcessHandle.of(Long.parseLong(pid.trim()));
+				if (process.isPresent()) {
+					process.get().destroyForcibly();
+					killed = true;
+				}
+			}
+			catch (NumberFormatException e) {
+			}
+		}
+		return killed; // an empty group, the renderer was not moved to it
+	}
+	
+	@Override public boolean isOutOfMemory() {
+		try {
+			for (String line : Files.readAllLines(this.path.resolve("memory.events"), StandardCharsets.UTF_8)) {
+				if (line.startsWith("oom_kill ") && Long.parseLong(line.substring("oom_kill ".length()).trim()) > 0) {
+					return true;
+				}
+			}
+		}
+		catch (IOException | NumberFormatException e) {
+			// no memory controller
+		}
+		return false;
+	}
+	
+	@Override public void close() {
+		// fails if a process is still running, the group is then removed before the next render
+		this.path.toFile().delete();
+	}
+	
+	private void applyLimits(Configuration config, int threads) {
+		List<String> limits = new ArrayList<>();
+		
+		if (config.getMaxAllowedMemory() > 0) {
+			long max = config.getMaxAllowedMemory() * 1024;
+			// above memory.high the kernel reclaims and throttles the renderer, it is only killed above memory.max
+			if (this.setLimit("memory.high", Long.toString(max / 10 * 9), limits) && this.setLimit("memory.max", Long.toString(max), limits)) {
+				this.setLimit("memory.oom.group", "1", limits); // the whole render is killed, not only the biggest process
+			}
+		}
+		this.setLimit("cpu.max", (threads * CPU_PERIOD) + " " + CPU_PERIOD, limits);
+		// same scale as the nice value of the renderer: 19 => 1, 0 => 100 (default), -19 => 6938
+		long weight = Math.round(100 * Math.pow(1.25, -config.getPriority()));
+		this.setLimit("cpu.weight", Long.toString(Math.max(1, Math.min(10000, weight))), limits);
+		this.setLimit("pids.max", Integer.toString(PIDS_BASE + PIDS_PER_THREAD * threads), limits);
+		
+		this.log.debug("RenderCGroup::applyLimits " + this.path + " " + limits);
+	}
+	
+	private boolean setLimit(String file, String value, List<String> applied) {
+		if (write(this.path.resolve(file), value)) {
+			applied.add(file + "=" + value);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Find the cgroup the renders are created in and give it the controllers it can
+	 *
+	 * @return the parent of the cgroups of the renders, null if there is no delegated cgroup
+	 */
+	private static Path setup(Log log) {
+		if (new File(ROOT, "cgroup.controllers").isFile() == false) {
+			log.info("RenderCGroup::setup cgroup v2 not available, the limits will be checked by the client");
+			return null;
+		}
+		
+		Path self = null;
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8)) {
+				if (line.startsWith("0::")) {
+					self = Paths.get(ROOT + line.substring(3));
+				}
+			}
+		}
+		catch (IOException e) {
+			log.error("RenderCGroup::setup failed to read /proc/self/cgroup (" + e + ")");
+		}
+		if (self != null && self.endsWith(CLIENT_GROUP) && isDelegated(self.getParent())) {
+			self = self.getParent(); // the client was started in a leaf, the renders are its siblings
+		}
+		if (self == null || isDelegated(self) == false) {
+			log.info("RenderCGroup::setup the cgroup of the client is not delegated, the limits will be checked by the client");
+			return null;
+		}
+		
+		String available = "";
+		try {
+			available = " " + new String(Files.readAllBytes(self.resolve("cgroup.controllers")), StandardCharsets.UTF_8).trim() + " ";
+		}
+		catch (IOException e) {
+		}
+		List<String> enabled = new ArrayList<>();
+		for (String controller : CONTROLLERS) {
+			if (available.contains(" " + controller + " ") && write(self.resolve("cgroup.subtree_control"), "+" + controller)) {
+				enabled.add(controller);
+			}
+		}
+		// even without controller, the group still allows to kill all the processes of a render
+		log.info("RenderCGroup::setup renders in " + self + ", controllers " + enabled);
+		if (enabled.isEmpty()) {
+			log.info("RenderCGroup::setup the limits will be checked by the client, start it in a " + CLIENT_GROUP + " leaf of the delegated cgroup to "
+				+ "have them enforced by the kernel");
+		}
+		return self;
+	}
+	
+	private static boolean isDelegated(Path group) {
+		return group != null && Files.isWritable(group.resolve("cgroup.subtree_control")) && Files.isWritable(group.resolve("cgroup.procs"));
+	}
+	
+	/**
+	 * Remove the groups left by the renders of the clients which are no longer running (the processes of a render can outlive the render). The groups
+	 * of the clients still running, which may share the parent, are kept.
+	 */
+	private static void removeStaleGroups(Path parent) {
+		File[] groups = parent.toFile().listFiles((dir, name) -> name.startsWith(RENDER_GROUP_PREFIX));
+		if (groups != null) {
+			for (File group : groups) {
+				String name = group.getName().substring(RENDER_GROUP_PREFIX.length());
+				int separator = name.indexOf('-');
+				try {
+					long pid = Long.parseLong(separator != -1 ? name.substring(0, separator) : name);
+					if (ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false) == false) {
+						group.delete(); // only works once the group is empty
+					}
+				}
+				catch (NumberFormatException e) {
+					// not a group of this client
+				}
+			}
+		}
+	}
+	
+	private static boolean write(Path file, String value) {
+		try {
+			Files.write(file, value.getBytes(StandardCharsets.UTF_8), StandardOpenOption.WRITE); // the files of a cgroup can not be created
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -75,6 +75,11 @@ public interface Kernel32Lib extends Library {
 	 */
 	WinDef.DWORD SEM_NOGPFAULTERRORBOX = new WinDef.DWORD(0x0002);
 	
+	/**
+	 * Begin background processing mode for the calling thread, the system lowers its resource scheduling priorities (including I/O)
+	 */
+	int THREAD_MODE_BACKGROUND_BEGIN = 0x00010000;
+	
 	/**
 	 * Describes an entry from a list of the processes residing in the system address space when a snapshot was taken.
 	 */
@@ -205,6 +210,10 @@ public interface Kernel32Lib extends Library {
 	
 	public boolean SetPriorityClass(HANDLE hProcess, int dwPriorityClass);
 	
+	public HANDLE GetCurrentThread();
+	
+	public boolean SetThreadPriority(HANDLE hThread, int nPriority);
+	
 	/**
 	 * Controls whether the system will handle the specified types of serious errors or whether the process will handle them.
 	 * See: http://msdn.microsoft.com/en-us/library/ms680621%28VS.85%29.aspx
@@ -53,6 +53,7 @@ import com.sheepit.client.hardware.gpu.GPU;
 import com.sheepit.client.hardware.gpu.GPUDevice;
 import com.sheepit.client.hardware.gpu.nvidia.Nvidia;
 import com.sheepit.client.network.Proxy;
+import com.sheepit.client.os.CPUPlacement;
 import com.sheepit.client.os.OS;
 
 public class Worker {
@@ -66,7 +67,7 @@ public class Worker {
 	
 	@Option(name = SettingsLoader.ARG_SHARED_ZIP, usage = "Shared directory for downloaded binaries and scenes. Useful when running two or more clients in the same computer/network to download once and render many times. IMPORTANT: This option and value must be identical in ALL clients sharing the directory.", required = false) private String sharedDownloadsDir = null;
 	
-	@Option(name = SettingsLoader.ARG_GPU, usage = "Name of the GPU used for the render, for example CUDA_0 for Nvidia or OPENCL_0 for AMD/Intel card", metaVar = "CUDA_0", required = false) private String gpu_device = null;
+	@Option(name = SettingsLoader.ARG_GPU, usage = "Name of the GPU used for the render, for example CUDA_0 for Nvidia or OPENCL_0 for AMD/Intel card. Several GPUs can be given, separated by commas (CUDA_0,CUDA_1): each renders its own frame, in the same session", metaVar = "CUDA_0", required = false) private String gpu_device = null;
 	
 	@Option(name = SettingsLoader.ARG_NO_GPU, usage = "Don't detect GPUs", required = false) private boolean no_gpu_detection = false;
 	
@@ -111,6 +112,24 @@ public class Worker {
 	
 	@Option(name = SettingsLoader.ARG_HEADLESS, usage = "Mark your client manually as headless to block Eevee projects", required = false) private boolean headless = java.awt.GraphicsEnvironment.isHeadless();
 	
+	@Option(name = SettingsLoader.ARG_PREFETCH, usage = "Request the next job when the current render reaches this progress (in %) and download and extract it in the background, so the next render starts as soon as the current one is over. Disabled by default", metaVar = "80", required = false) private int prefetch = -1;
+	
+	@Option(name = SettingsLoader.ARG_CGROUP, usage = "Linux only: run each render in its own cgroup v2, so the memory, cores and priority limits are enforced by the kernel and a stopped render is killed with all its child processes. Needs a delegated cgroup, for example when started with 'systemd-run --user --scope -p Delegate=yes', and the limits need the client to run in a leaf named sheepit-client of it (the client is never moved)", required = false) private boolean cgroup = false;
+	
+	@Option(name = SettingsLoader.ARG_CPU_PLACEMENT, usage = "Linux only: pin the renderer to some cpus. 'auto' picks whole physical cores of a single NUMA node when possible, 'node:1' uses the cores and the memory of the NUMA node 1, '0-7,16-23' uses these cpus. Needs numactl (or taskset, without memory placement)", metaVar = "auto", required = false) private String cpu_placement = null;
+	
+	@Option(name = SettingsLoader.ARG_SLOTS, usage = "Number of frames rendered at the same time on the CPU, each render gets its share of the cores (-cores) and of the cpus (-cpu-placement). Useful on computers with many cores, as most scenes do not use more than a few dozen threads efficiently. At most 3, the number of jobs the server gives to a session", metaVar = "2", required = false) private int slots = 1;
+	
+	@Option(name = SettingsLoader.ARG_WARM_RENDERER, usage = "Keep the renderer running between the frames of a project, the scene is loaded and prepared once instead of for every frame. The renderer is started again when the project changes or when it uses more than 90% of the allowed memory (-memory)", required = false) private boolean warmRenderer = false;
+	
+	@Option(name = SettingsLoader.ARG_CACHE_QUOTA, usage = "Maximum size of the cache (the renderers and projects downloaded and extracted), number with unit (50G, 500M, ...). The archives least worth keeping are removed first: the largest ones, the ones used the least and the ones not used for a long time. Whatever the quota, archives are removed when the disk is too full for the next download", metaVar = "50G", required = false) private String cache_quota = null;
+	
+	@Option(name = SettingsLoader.ARG_ARCHIVE_MAX_SIZE, usage = "Maximum size of the render archive (the frames uploaded and the projects rendered, kept in sheepit_render_archive), number with unit (10G, 500M, ...), 0 for no limit (the default). The oldest files are removed first", metaVar = "10G", required = false) private String archive_max_size = null;
+	
+	@Option(name = SettingsLoader.ARG_ARCHIVE_MAX_AGE, usage = "Number of days the files of the render archive are kept, 0 to keep them whatever their age (the default). The age is counted from their arrival in the archive", metaVar = "7", required = false) private int archive_max_age = -1;
+	
+	@Option(name = SettingsLoader.ARG_ARCHIVE_MAX_FILES, usage = "Number of files kept in the render archive for each project, the newest ones, 0 for no limit (the default)", metaVar = "100", required = false) private int archive_max_files = -1;
+	
 	public static void main(String[] args) {
 		if (OS.getOS() == null) {
 			System.err.println(Error.humanString(Error.Type.OS_NOT_SUPPORTED));
@@ -194,18 +213,28 @@ public class Worker {
 		config.setHeadless(headless);
 		
 		if (gpu_device != null) {
-			if (gpu_device.startsWith(Nvidia.TYPE) == false && gpu_device.startsWith(HIP.TYPE) == false) {
-				System.err.println("ERROR: The entered GPU_ID is invalid. The GPU_ID should look like '" + Nvidia.TYPE + "_#' or '" + HIP.TYPE
-						+ "_#'. Please use the proper GPU_ID from the GPU list below\n");
-				showGPUList(parser);
-			}
-			
-			GPUDevice gpu = GPU.getGPUDevice(gpu_device);
-			if (gpu == null) {
-				System.err.println("ERROR: The entered GPU_ID is invalid. Please use the proper GPU_ID from the GPU list below\n");
-				showGPUList(parser);
+			List<GPUDevice> gpus = new LinkedList<>();
+			for (String gpu_id : gpu_device.split(",")) {
+				gpu_id = gpu_id.trim();
+				if (gpu_id.startsWith(Nvidia.TYPE) == false && gpu_id.startsWith(HIP.TYPE) == false) {
+					System.err.println("ERROR: The entered GPU_ID is invalid. The GPU_ID should look like '" + Nvidia.TYPE + "_#' or '" + HIP.TYPE
+							+ "_#'. Please use the proper GPU_ID from the GPU list below\n");
+					showGPUList(parser);
+				}
+				
+				GPUDevice gpu = GPU.getGPUDevice(gpu_id);
+				if (gpu == null) {
+					System.err.println("ERROR: The entered GPU_ID is invalid. Please use the proper GPU_ID from the GPU list below\n");
+					showGPUList(parser);
+				}
+				if (gpus.contains(gpu)) {
+					System.err.println("ERROR: The GPU " + gpu_id + " is used twice (-gpu parameter)");
+					System.exit(2);
+				}
+				gpus.add(gpu);
 			}
-			config.setGPUDevice(gpu);
+			config.setGPUDevice(gpus.remove(0));
+			config.setAdditionalGPUDevices(gpus);
 		}
 		
 		if (request_time != null) {
@@ -298,6 +327,55 @@ public class Worker {
 			config.setExtras(extras);
 		}
 		
+		if (prefetch != -1) {
+			if (prefetch < 0 || prefetch > 100) {
+				System.err.println("ERROR: The entered prefetch progress (-prefetch parameter) must be between 0 and 100");
+				System.exit(2);
+			}
+			config.setPrefetchProgress(prefetch);
+		}
+		
+		config.setUseCGroup(cgroup);
+		config.setUseWarmRenderer(warmRenderer);
+		
+		if (cache_quota != null) {
+			try {
+				config.setCacheQuota(Utils.parseNumber(cache_quota));
+			}
+			catch (java.lang.IllegalStateException e) {
+				System.err.println(
+						String.format("ERROR: The entered value of the cache quota (-cache-quota parameter) doesn't seem to be a valid number [%s]", e.getMessage()));
+				return;
+			}
+		}
+		
+		if (archive_max_size != null) {
+			try {
+				config.setArchiveMaxSize(Utils.parseNumber(archive_max_size));
+			}
+			catch (java.lang.IllegalStateException e) {
+				System.err.println(String.format("ERROR: The entered value of the archive size (-archive-max-size parameter) doesn't seem to be a valid number [%s]",
+						e.getMessage()));
+				return;
+			}
+		}
+		
+		if (archive_max_age >= 0) {
+			config.setArchiveMaxAge(archive_max_age);
+		}
+		
+		if (archive_max_files >= 0) {
+			config.setArchiveMaxFilesPerProject(archive_max_files);
+		}
+		
+		if (cpu_placement != null) {
+			if (CPUPlacement.isValidSetting(cpu_placement) == false) {
+				System.err.println("ERROR: The entered cpu placement (-cpu-placement parameter) must be 'auto', 'node:<number>' or a list of cpus like '0-7,16-23'");
+				System.exit(2);
+			}
+			config.setCpuPlacement(cpu_placement);
+		}
+		
 		if (compute_method != null) {
 			if (compute_method == ComputeType.CPU && config.getGPUDevice() != null) {
 				System.err.println(
@@ -315,6 +393,7 @@ public class Worker {
 			}
 			else if (compute_method == ComputeType.CPU) {
 				config.setGPUDevice(null); // remove the GPU
+				config.getAdditionalGPUDevices().clear();
 			}
 		}
 		
@@ -435,6 +514,28 @@ public class Worker {
 		SettingsLoader settingsLoader = new SettingsLoader(config_file);
 		settingsLoader.merge(config, true);
 		
+		// checked once the configuration file is merged, it may set the GPU, the compute method or the prefetch
+		if (slots != 1) {
+			if (slots < 1 || slots > config.getMaxUploadingJob()) {
+				System.err.println(String.format("ERROR: The entered number of render slots (-slots parameter) must be between 1 and %d", config.getMaxUploadingJob()));
+				System.exit(2);
+			}
+			if (config.getGPUDevice() != null && config.getComputeMethod() != ComputeType.CPU) {
+				System.err.println("ERROR: The render slots (-slots parameter) only render on the CPU, they would all share the same GPU. Remove the GPU or set the compute method to CPU");
+				System.exit(2);
+			}
+			if (config.getPrefetchProgress() >= 0) {
+				System.err.println("ERROR: The render slots (-slots parameter) can not be used with the prefetch of the next job (-prefetch parameter)");
+				System.exit(2);
+			}
+			config.setRenderSlots(slots);
+		}
+		
+		if (config.getAdditionalGPUDevices().isEmpty() == false && config.getPrefetchProgress() >= 0) {
+			System.err.println("ERROR: Several GPUs (-gpu parameter) can not be used with the prefetch of the next job (-prefetch parameter)");
+			System.exit(2);
+		}
+		
 		if (args.length > 0) {
 			settingsLoader.markLaunchSettings(List.of(args));
 		}
@@ -510,7 +510,7 @@ public class Working implements Activity {
 	}
 	
 	private int getJobsQueueSize(Client client) {
-		return client.getUploadQueueSize() + (client.isRunning() ? 1 : 0);
+		return client.getUploadQueue().size() + (client.isRunning() ? 1 : 0);
 	}
 	
 	class PauseAction implements ActionListener {
@@ -0,0 +1,31 @@
+# Command loop of a renderer kept running between the frames of a project (WarmRenderer).
+# Blender runs it last, once the scene is loaded and the script of the job has set up the render, then waits for commands on its standard input:
+#   render <frame> <output path prefix>
+#   quit
+# The end of each frame is written on the standard output, "SHEEPIT_WARM_DONE <frame>" or "SHEEPIT_WARM_FAILED <frame> <reason>", the client reads the
+# output of the render until then. The loop also ends when the standard input is closed, Blender then exits.
+import sys
+import bpy
+
+
+def sheepit_warm_loop():
+    scene = bpy.context.scene
+    # keep the render data (BVH, images, shaders) between the frames, only what changes from a frame to the next is updated
+    scene.render.use_persistent_data = True
+    for line in sys.stdin:
+        args = line.rstrip("\r\n").split(" ", 2)
+        if args[0] == "quit":
+            break
+        if args[0] != "render" or len(args) != 3:
+            print("SHEEPIT_WARM_FAILED 0 unknown command " + line.strip(), flush=True)
+            continue
+        try:
+            scene.frame_set(int(args[1]))
+            scene.render.filepath = args[2]
+            bpy.ops.render.render(write_still=True)
+            print("SHEEPIT_WARM_DONE " + args[1], flush=True)
+        except Exception as e:
+            print("SHEEPIT_WARM_FAILED " + args[1] + " " + str(e).replace("\n", " "), flush=True)
+
+
+sheepit_warm_loop()
@@ -0,0 +1,125 @@
+package com.sheepit.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/****************
+ * Replays the renderer output excerpts kept in error_signatures.txt through ErrorSignatures. The reference is the behaviour of the former if/else
+ * chain of Job::detectError: the error of the first signature of the table contained in the line.
+ */
+public class ErrorSignaturesTest {
+	private static ErrorSignatures signatures;
+	private static List<Block> blocks; // the signatures of the table with the excerpt written above each of them
+	
+	@BeforeAll public static void load() throws IOException {
+		signatures = ErrorSignatures.load(ErrorSignaturesTest.class.getResourceAsStream(ErrorSignatures.RESOURCE), Log.getInstance(null));
+		blocks = new ArrayList<>();
+		
+		try (InputStream stream = ErrorSignaturesTest.class.getResourceAsStream(ErrorSignatures.RESOURCE);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			List<String> excerpt = new ArrayList<>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("# ")) {
+					excerpt.add(line.substring("# ".length()));
+				}
+				else if (line.isEmpty() == false && line.startsWith("#") == false) {
+					int separator = line.indexOf('\t');
+					blocks.add(new Block(Error.Type.valueOf(line.substring(0, separator)), line.substring(separator + 1), excerpt));
+					excerpt = new ArrayList<>();
+				}
+			}
+		}
+	}
+	
+	@Test public void tableIsLoaded() {
+		assertFalse(blocks.isEmpty());
+		assertEquals(blocks.size(), signatures.size());
+	}
+	
+	/**
+	 * The render stops on the first line with an error, it must be the error the excerpt was recorded for
+	 */
+	@Test public void excerptsReportTheirError() {
+		for (Block block : blocks) {
+			if (block.excerpt.isEmpty()) {
+				continue;
+			}
+			Error.Type first = Error.Type.OK;
+			for (String line : block.excerpt) {
+				first = signatures.detect(line);
+				if (first != Error.Type.OK) {
+					break;
+				}
+			}
+			assertEquals(block.type, first, "excerpt of the signature '" + block.signature + "'");
+		}
+	}
+	
+	@Test public void excerptLinesMatchTheReference() {
+		for (Block block : blocks) {
+			for (String line : block.excerpt) {
+				assertEquals(reference(line), signatures.detect(line), line);
+			}
+		}
+	}
+	
+	@Test public void signaturesMatchTheReference() {
+		for (Block block : blocks) {
+			assertNotEquals(Error.Type.OK, signatures.detect(block.signature), block.signature);
+			assertEquals(reference(block.signature), signatures.detect(block.signature), block.signature);
+			assertEquals(reference("Fra:1 | " + block.signature + " | end"), signatures.detect("Fra:1 | " + block.signature + " | end"), block.signature);
+			String truncated = block.signature.substring(0, block.signature.length() - 1);
+			assertEquals(reference(truncated), signatures.detect(truncated), truncated);
+		}
+	}
+	
+	@Test public void severalSignaturesInOneLine() {
+		for (Block first : blocks) {
+			for (Block second : blocks) {
+				String line = first.signature + " " + second.signature;
+				assertEquals(reference(line), signatures.detect(line), line);
+			}
+		}
+	}
+	
+	@Test public void statusLinesAreNotErrors() {
+		assertEquals(Error.Type.OK, signatures.detect(""));
+		assertEquals(Error.Type.OK, signatures.detect(
+			"Fra:340 Mem:7.25M (0.00M, Peak 7.26M) | Time:00:00.13 | Mem:0.00M, Peak:0.00M | Scene, RenderLayer | Synchronizing object | Cube"));
+		assertEquals(Error.Type.OK, signatures.detect("Saved: '/tmp/xx/26885_0151.png' Time: 00:04.67 (Saving: 00:00.22) \u00e9\u4e2d"));
+	}
+	
+	private static Error.Type reference(String line) {
+		for (Block block : blocks) {
+			if (line.contains(block.signature)) {
+				return block.type;
+			}
+		}
+		return Error.Type.OK;
+	}
+	
+	private static class Block {
+		private final Error.Type type;
+		private final String signature;
+		private final List<String> excerpt;
+		
+		private Block(Error.Type type, String signature, List<String> excerpt) {
+			this.type = type;
+			this.signature = signature;
+			this.excerpt = excerpt;
+		}
+	}
+}